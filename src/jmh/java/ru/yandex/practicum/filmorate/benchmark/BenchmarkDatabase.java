@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/**
+ * Приложение поверх встроенной H2 в памяти, заполненной тестовыми данными. По умолчанию запускается без веб-сервера.
+ * Схема и справочники создаются штатными schema.sql и data.sql.
+ */
+public class BenchmarkDatabase implements AutoCloseable {
+    private static final int BATCH_SIZE = 5_000;
+
+    private final ConfigurableApplicationContext context;
+    private final JdbcTemplate jdbcTemplate;
+    private final Random random = new Random(42);
+
+    public BenchmarkDatabase() {
+        this(WebApplicationType.NONE);
+    }
+
+    /**
+     * Приложение с веб-сервером на свободном порту, см. {@link #getPort()}.
+     *
+     * @param profiles активные профили Spring, например reactive для WebFlux и R2DBC
+     */
+    public BenchmarkDatabase(WebApplicationType webApplicationType, String... profiles) {
+        context = new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webApplicationType)
+                .profiles(profiles)
+                // аргументы командной строки, в отличие от properties(), перекрывают application.properties
+                .run("--spring.datasource.url=jdbc:h2:mem:bench-" + UUID.randomUUID() + ";NON_KEYWORDS=user;DB_CLOSE_DELAY=-1",
+                     "--server.port=0",
+                     "--spring.main.banner-mode=off",
+                     "--logging.level.root=WARN",
+                     "--logging.level.ru.yandex.practicum=WARN",
+                     "--logging.level.org.springframework=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    public int getPort() {
+        return Integer.parseInt(context.getEnvironment().getRequiredProperty("local.server.port"));
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    /**
+     * Заполняет БД и перестраивает индексы в памяти.
+     *
+     * @param likesPerUser   среднее количество лайков у пользователя
+     * @param friendsPerUser среднее количество друзей у пользователя
+     */
+    public void seed(int users, int films, int likesPerUser, int friendsPerUser) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 1; i <= users; i++) {
+            rows.add(new Object[]{i, "login" + i, "User " + i, "user" + i + "@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1))});
+        }
+        batch("INSERT INTO USERS(ID, LOGIN, NAME, EMAIL, BIRTHDAY) VALUES(?, ?, ?, ?, ?)", rows);
+
+        rows.clear();
+        List<Object[]> genres = new ArrayList<>();
+        for (int i = 1; i <= films; i++) {
+            rows.add(new Object[]{i, "Film " + i, "Description of film " + i, Date.valueOf(LocalDate.of(2000, 1, 1)), 90 + i % 60, i % 5 + 1});
+            genres.add(new Object[]{i % 6 + 1, i});
+            if (i % 3 == 0) {
+                genres.add(new Object[]{(i + 1) % 6 + 1, i});
+            }
+        }
+        batch("INSERT INTO FILMS(ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) VALUES(?, ?, ?, ?, ?, ?)", rows);
+        batch("INSERT INTO GENRES_FILMS(GENRE_ID, FILM_ID) VALUES(?, ?)", genres);
+
+        rows.clear();
+        for (int user = 1; user <= users; user++) {
+            for (int film : distinctRandom(likesPerUser, films, user)) {
+                rows.add(new Object[]{user, film});
+            }
+        }
+        batch("MERGE INTO LIKES(USER_ID, FILM_ID) KEY(USER_ID, FILM_ID) VALUES(?, ?)", rows);
+        jdbcTemplate.update("UPDATE FILMS f SET LIKES_COUNT = (SELECT COUNT(*) FROM LIKES l WHERE l.FILM_ID = f.ID)");
+
+        rows.clear();
+        for (int user = 1; user <= users; user++) {
+            for (int friend : distinctRandom(friendsPerUser, users, user)) {
+                rows.add(new Object[]{user, friend});
+            }
+        }
+        batch("MERGE INTO FRIENDS(REQUESTER_ID, RESPONDER_ID) KEY(REQUESTER_ID, RESPONDER_ID) VALUES(?, ?)", rows);
+
+        jdbcTemplate.execute("ALTER TABLE USERS ALTER COLUMN ID RESTART WITH " + (users + 1));
+        jdbcTemplate.execute("ALTER TABLE FILMS ALTER COLUMN ID RESTART WITH " + (films + 1));
+        context.getBeansOfType(Reloadable.class).values().forEach(Reloadable::reload);
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private int[] distinctRandom(int count, int bound, int exclude) {
+        return random.ints(1, bound + 1)
+                .filter(value -> value != exclude)
+                .distinct()
+                .limit(Math.min(count, bound - 1))
+                .toArray();
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(from + BATCH_SIZE, rows.size())));
+        }
+    }
+}
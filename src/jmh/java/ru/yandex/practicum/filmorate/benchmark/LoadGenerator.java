@@ -0,0 +1,280 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Нагрузочный тест: запускает приложение на свободном порту поверх заполненной H2 в памяти и в течение заданного
+ * времени гоняет смесь запросов из множества клиентов. Каждый клиент отправляет следующий запрос сразу после ответа
+ * на предыдущий. После прогрева по каждому типу запроса печатаются пропускная способность и перцентили задержки.
+ * <p>
+ * Параметры в виде {@code имя=значение}: stack (servlet или reactive), clients, duration и warmup в секундах,
+ * users, films, likesPerUser, friendsPerUser и mix, например {@code mix=popular:40,film:35,like:10,common:15}.
+ */
+public class LoadGenerator {
+    private static final String DEFAULT_MIX = "popular:40,film:35,like:10,friend-add:5,friend-remove:5,common:5";
+    private static final long MAX_LATENCY_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    private final String baseUrl;
+    private final int users;
+    private final int films;
+    private final Endpoint[] endpoints;
+    private final int[] cumulativeWeights;
+    private final Map<Endpoint, Histogram> latencies = new EnumMap<>(Endpoint.class);
+    private final Map<Endpoint, LongAdder> errors = new EnumMap<>(Endpoint.class);
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    private LoadGenerator(String baseUrl, int users, int films, Map<Endpoint, Integer> mix) {
+        this.baseUrl = baseUrl;
+        this.users = users;
+        this.films = films;
+        this.endpoints = mix.keySet().toArray(new Endpoint[0]);
+        this.cumulativeWeights = new int[endpoints.length];
+        int total = 0;
+        for (int i = 0; i < endpoints.length; i++) {
+            total += mix.get(endpoints[i]);
+            cumulativeWeights[i] = total;
+            latencies.put(endpoints[i], new ConcurrentHistogram(MAX_LATENCY_NANOS, 3));
+            errors.put(endpoints[i], new LongAdder());
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Map<String, String> options = parseOptions(args);
+        String stack = options.getOrDefault("stack", "servlet");
+        int clients = Integer.parseInt(options.getOrDefault("clients", "64"));
+        int duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        int warmup = Integer.parseInt(options.getOrDefault("warmup", "5"));
+        int users = Integer.parseInt(options.getOrDefault("users", "1000"));
+        int films = Integer.parseInt(options.getOrDefault("films", "5000"));
+        int likesPerUser = Integer.parseInt(options.getOrDefault("likesPerUser", "20"));
+        int friendsPerUser = Integer.parseInt(options.getOrDefault("friendsPerUser", "50"));
+        Map<Endpoint, Integer> mix = parseMix(options.getOrDefault("mix", DEFAULT_MIX));
+
+        try (BenchmarkDatabase database = "reactive".equals(stack)
+                ? new BenchmarkDatabase(WebApplicationType.REACTIVE, "reactive")
+                : new BenchmarkDatabase(WebApplicationType.SERVLET)) {
+            database.seed(users, films, likesPerUser, friendsPerUser);
+            LoadGenerator generator = new LoadGenerator("http://localhost:" + database.getPort(), users, films, mix);
+            System.out.printf("Стек %s, клиентов %d, прогрев %d с, замер %d с, смесь %s%n",
+                              stack, clients, warmup, duration, mix);
+            generator.run(clients, warmup, duration);
+        }
+    }
+
+    private void run(int clients, int warmup, int duration) throws InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+        for (int i = 0; i < clients; i++) {
+            executor.execute(this::client);
+        }
+        TimeUnit.SECONDS.sleep(warmup);
+        recording = true;
+        long startedAt = System.nanoTime();
+        TimeUnit.SECONDS.sleep(duration);
+        recording = false;
+        long elapsedNanos = System.nanoTime() - startedAt;
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+            executor.shutdownNow();
+        }
+        report(elapsedNanos);
+    }
+
+    private void client() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (running) {
+            Endpoint endpoint = nextEndpoint(random);
+            HttpRequest request = endpoint.request(baseUrl, random, users, films);
+            long startedAt = System.nanoTime();
+            boolean failed;
+            try {
+                int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                failed = status >= 400;
+            } catch (IOException e) {
+                failed = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            long latency = System.nanoTime() - startedAt;
+            if (recording) {
+                latencies.get(endpoint).recordValue(Math.min(latency, MAX_LATENCY_NANOS));
+                if (failed) {
+                    errors.get(endpoint).increment();
+                }
+            }
+        }
+    }
+
+    private Endpoint nextEndpoint(ThreadLocalRandom random) {
+        int value = random.nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+        for (int i = 0; i < cumulativeWeights.length; i++) {
+            if (value < cumulativeWeights[i]) {
+                return endpoints[i];
+            }
+        }
+        throw new IllegalStateException("Вес " + value + " вне диапазона смеси");
+    }
+
+    private void report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.printf("%-15s %10s %8s %10s %9s %9s %9s %9s%n",
+                          "Запрос", "Запросов", "Ошибок", "Запр./с", "p50, мс", "p95, мс", "p99, мс", "max, мс");
+        Histogram total = new Histogram(MAX_LATENCY_NANOS, 3);
+        long totalErrors = 0;
+        for (Endpoint endpoint : endpoints) {
+            Histogram histogram = latencies.get(endpoint);
+            long endpointErrors = errors.get(endpoint).sum();
+            printRow(endpoint.title, histogram, endpointErrors, seconds);
+            total.add(histogram);
+            totalErrors += endpointErrors;
+        }
+        printRow("Всего", total, totalErrors, seconds);
+    }
+
+    private static void printRow(String title, Histogram histogram, long errors, double seconds) {
+        System.out.printf(Locale.ROOT, "%-15s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                          title,
+                          histogram.getTotalCount(),
+                          errors,
+                          histogram.getTotalCount() / seconds,
+                          millis(histogram.getValueAtPercentile(50)),
+                          millis(histogram.getValueAtPercentile(95)),
+                          millis(histogram.getValueAtPercentile(99)),
+                          millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Параметр должен иметь вид имя=значение, получено " + arg);
+            }
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    private static Map<Endpoint, Integer> parseMix(String mix) {
+        Map<Endpoint, Integer> weights = new EnumMap<>(Endpoint.class);
+        for (String part : mix.split(",")) {
+            String[] nameAndWeight = part.split(":");
+            int weight = Integer.parseInt(nameAndWeight[1].strip());
+            if (weight > 0) {
+                weights.put(Endpoint.byTitle(nameAndWeight[0].strip()), weight);
+            }
+        }
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("В смеси запросов нет ни одного запроса с положительным весом");
+        }
+        return weights;
+    }
+
+    private enum Endpoint {
+        POPULAR("popular") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                return get(baseUrl + "/films/popular?count=10");
+            }
+        },
+        FILM("film") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                return get(baseUrl + "/films/" + id(random, films));
+            }
+        },
+        LIKE("like") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                return send("PUT", baseUrl + "/films/" + id(random, films) + "/like/" + id(random, users));
+            }
+        },
+        FRIEND_ADD("friend-add") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                return send("PUT", baseUrl + friendsPath(random, users));
+            }
+        },
+        FRIEND_REMOVE("friend-remove") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                return send("DELETE", baseUrl + friendsPath(random, users));
+            }
+        },
+        COMMON_FRIENDS("common") {
+            @Override
+            HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films) {
+                int id = id(random, users);
+                return get(baseUrl + "/users/" + id + "/friends/common/" + otherId(random, users, id));
+            }
+        };
+
+        private final String title;
+
+        Endpoint(String title) {
+            this.title = title;
+        }
+
+        abstract HttpRequest request(String baseUrl, ThreadLocalRandom random, int users, int films);
+
+        static Endpoint byTitle(String title) {
+            for (Endpoint endpoint : values()) {
+                if (endpoint.title.equals(title)) {
+                    return endpoint;
+                }
+            }
+            throw new IllegalArgumentException("Неизвестный запрос в смеси: " + title);
+        }
+
+        @Override
+        public String toString() {
+            return title;
+        }
+
+        private static HttpRequest get(String url) {
+            return HttpRequest.newBuilder(URI.create(url)).GET().build();
+        }
+
+        private static HttpRequest send(String method, String url) {
+            return HttpRequest.newBuilder(URI.create(url)).method(method, HttpRequest.BodyPublishers.noBody()).build();
+        }
+
+        private static String friendsPath(ThreadLocalRandom random, int users) {
+            int id = id(random, users);
+            return "/users/" + id + "/friends/" + otherId(random, users, id);
+        }
+
+        private static int id(ThreadLocalRandom random, int bound) {
+            return random.nextInt(bound) + 1;
+        }
+
+        private static int otherId(ThreadLocalRandom random, int bound, int exclude) {
+            int id = random.nextInt(bound - 1) + 1;
+            return id >= exclude ? id + 1 : id;
+        }
+    }
+}
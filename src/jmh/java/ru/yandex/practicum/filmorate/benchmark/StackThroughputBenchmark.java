@@ -0,0 +1,89 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.springframework.boot.WebApplicationType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность HTTP-запросов к /films и /users при большом числе одновременных клиентов:
+ * Spring MVC с JdbcTemplate (servlet) против WebFlux с R2DBC (reactive, профиль reactive).
+ * Запросы выбраны так, чтобы оба стека ходили в БД, а не в индексы в памяти.
+ * Драйвер R2DBC для H2 выполняет запросы встроенной БД в вызывающем потоке, поэтому сравнение
+ * показывает накладные расходы стеков, а не выигрыш от неблокирующего сетевого драйвера.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Threads(64)
+public class StackThroughputBenchmark {
+    @Param({"servlet", "reactive"})
+    private String stack;
+    @Param({"1000"})
+    private int users;
+    @Param({"5000"})
+    private int films;
+    @Param({"20"})
+    private int likesPerUser;
+    @Param({"50"})
+    private int friendsPerUser;
+
+    private BenchmarkDatabase database;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = "reactive".equals(stack)
+                ? new BenchmarkDatabase(WebApplicationType.REACTIVE, "reactive")
+                : new BenchmarkDatabase(WebApplicationType.SERVLET);
+        database.seed(users, films, likesPerUser, friendsPerUser);
+        httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        baseUrl = "http://localhost:" + database.getPort();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public String getFilm() throws IOException, InterruptedException {
+        return get("/films/" + (ThreadLocalRandom.current().nextInt(films) + 1));
+    }
+
+    @Benchmark
+    public String getUser() throws IOException, InterruptedException {
+        return get("/users/" + (ThreadLocalRandom.current().nextInt(users) + 1));
+    }
+
+    @Benchmark
+    public String getUserFriends() throws IOException, InterruptedException {
+        return get("/users/" + (ThreadLocalRandom.current().nextInt(users) + 1) + "/friends");
+    }
+
+    private String get(String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("GET " + path + " вернул " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StorageBenchmark {
+    @Param({"1000"})
+    private int users;
+    @Param({"5000"})
+    private int films;
+    @Param({"20"})
+    private int likesPerUser;
+    @Param({"50"})
+    private int friendsPerUser;
+
+    private BenchmarkDatabase database;
+    private FilmDbStorage filmStorage;
+    private UserDbStorage userStorage;
+    private FilmService filmService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        database = new BenchmarkDatabase();
+        database.seed(users, films, likesPerUser, friendsPerUser);
+        filmStorage = database.getBean(FilmDbStorage.class);
+        userStorage = database.getBean(UserDbStorage.class);
+        filmService = database.getBean(FilmService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        database.close();
+    }
+
+    @Benchmark
+    public List<Film> filmGetAll() {
+        return filmStorage.getAll();
+    }
+
+    @Benchmark
+    public List<Film> filmGetTopPopular() {
+        return filmStorage.getTopPopular(10);
+    }
+
+    @Benchmark
+    public List<Film> serviceGetTopPopular() {
+        return filmService.getTopPopular(10);
+    }
+
+    @Benchmark
+    public void filmSaveLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        filmStorage.saveLike(random.nextInt(1, films + 1), random.nextInt(1, users + 1));
+    }
+
+    @Benchmark
+    public List<User> userGetCommonFriends() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return userStorage.getCommonFriends(random.nextInt(1, users + 1), random.nextInt(1, users + 1));
+    }
+
+    @Benchmark
+    public List<User> userGetFriends() {
+        return userStorage.getUserFriends(ThreadLocalRandom.current().nextInt(1, users + 1));
+    }
+}
@@ -0,0 +1,62 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.service.DictionaryService;
+import ru.yandex.practicum.filmorate.service.LikesReconciler;
+import ru.yandex.practicum.filmorate.service.LikesReconciliationReport;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+
+import java.util.List;
+
+@Slf4j
+@RestController
+@RequestMapping("/admin")
+public class AdminController {
+    private final DictionaryService dictionaryService;
+    private final List<Reloadable> reloadables;
+    private final LikesReconciler likesReconciler;
+
+    @Autowired
+    public AdminController(DictionaryService dictionaryService, List<Reloadable> reloadables,
+                           LikesReconciler likesReconciler) {
+        this.dictionaryService = dictionaryService;
+        this.reloadables = reloadables;
+        this.likesReconciler = likesReconciler;
+    }
+
+    @PostMapping("/dictionaries/refresh")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void refreshDictionaries() {
+        log.info("POST /admin/dictionaries/refresh");
+        dictionaryService.refresh();
+    }
+
+    @PostMapping("/indexes/reload")
+    @ResponseStatus(HttpStatus.NO_CONTENT)
+    public void reloadIndexes() {
+        log.info("POST /admin/indexes/reload");
+        reloadables.forEach(Reloadable::reload);
+    }
+
+    @GetMapping("/likes/reconciliation")
+    public LikesReconciliationReport getLastLikesReconciliation() {
+        log.info("GET /admin/likes/reconciliation");
+        return likesReconciler.getLastReport()
+                .orElseThrow(() -> new UnknownModelObjectException("Сверка счетчиков лайков еще не выполнялась"));
+    }
+
+    @PostMapping("/likes/reconciliation")
+    public LikesReconciliationReport reconcileLikes(@RequestParam(defaultValue = "true") boolean dryRun) {
+        log.info("POST /admin/likes/reconciliation?dryRun={}", dryRun);
+        return likesReconciler.run(dryRun);
+    }
+}
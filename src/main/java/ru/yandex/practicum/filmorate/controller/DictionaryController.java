@@ -2,46 +2,120 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.model.Genre;
-import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.controller.DictionaryResponseCache.SerializedBody;
 import ru.yandex.practicum.filmorate.service.DictionaryService;
 
-import java.util.List;
+import java.time.Duration;
+import java.util.Locale;
 
+/**
+ * Справочники отдаются готовыми байтами из {@link DictionaryResponseCache}, сжатыми gzip, если клиент это поддерживает.
+ */
 @Slf4j
 @RestController
 public class DictionaryController {
     private final DictionaryService service;
+    private final DictionaryResponseCache responseCache;
+    private final CacheControl cacheControl;
 
     @Autowired
-    public DictionaryController(DictionaryService service) {
+    public DictionaryController(DictionaryService service, DictionaryResponseCache responseCache,
+                                @Value("${filmorate.dictionaries.cache-max-age:1d}") Duration cacheMaxAge) {
         this.service = service;
+        this.responseCache = responseCache;
+        this.cacheControl = CacheControl.maxAge(cacheMaxAge).cachePublic();
     }
 
     @GetMapping("/genres")
-    public List<Genre> getAllGenres() {
+    public ResponseEntity<byte[]> getAllGenres(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /genres");
-        return service.getAllGenres();
+        return toResponse(responseCache.get("/genres", service::getAllGenres), acceptEncoding);
     }
 
     @GetMapping("/genres/{id}")
-    public Genre getGenreById(@PathVariable Integer id) {
+    public ResponseEntity<byte[]> getGenreById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /genres/{}", id);
-        return service.getGenreById(id);
+        return toResponse(responseCache.get("/genres/" + id, () -> service.getGenreById(id)), acceptEncoding);
     }
 
     @GetMapping("/mpa")
-    public List<MpaRating> getAllMpa() {
+    public ResponseEntity<byte[]> getAllMpa(
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /mpa");
-        return service.getAllMpa();
+        return toResponse(responseCache.get("/mpa", service::getAllMpa), acceptEncoding);
     }
 
     @GetMapping("/mpa/{id}")
-    public MpaRating getMpaById(@PathVariable Integer id) {
+    public ResponseEntity<byte[]> getMpaById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
         log.info("GET /mpa/{}", id);
-        return service.getMpaById(id);
+        return toResponse(responseCache.get("/mpa/" + id, () -> service.getMpaById(id)), acceptEncoding);
+    }
+
+    /**
+     * Ответ с ETag: на совпадающий If-None-Match Spring сам вернет 304 без тела.
+     * У сжатого варианта свой ETag, так как это другое представление ресурса.
+     */
+    private ResponseEntity<byte[]> toResponse(SerializedBody body, String acceptEncoding) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(cacheControl)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsGzip(acceptEncoding)) {
+            return builder.eTag(body.etag + "-gzip").header(HttpHeaders.CONTENT_ENCODING, "gzip").body(body.gzip);
+        }
+        return builder.eTag(body.etag).body(body.json);
+    }
+
+    /**
+     * Разбирает Accept-Encoding: gzip подходит, если он или {@code *} перечислены с ненулевым весом q.
+     * Явный вес gzip важнее веса {@code *}.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String token : acceptEncoding.split(",")) {
+            String[] parts = token.split(";");
+            String coding = parts[0].strip().toLowerCase(Locale.ROOT);
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = quality(parts);
+            } else if (coding.equals("*")) {
+                any = quality(parts);
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private static double quality(String[] parts) {
+        for (int i = 1; i < parts.length; i++) {
+            String parameter = parts[i].strip();
+            if (parameter.regionMatches(true, 0, "q=", 0, 2)) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).strip());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
     }
 }
@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.service.DictionaryService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Кэш готовых JSON-ответов справочников: тело сериализуется и сжимается один раз на каждый адрес.
+ * Кэш сбрасывается, когда меняется {@link DictionaryService#getVersion()}, то есть после перезагрузки справочников.
+ */
+@Component
+class DictionaryResponseCache {
+    private final DictionaryService service;
+    private final ObjectMapper objectMapper;
+    private volatile Bodies bodies = new Bodies(-1);
+
+    @Autowired
+    DictionaryResponseCache(DictionaryService service, ObjectMapper objectMapper) {
+        this.service = service;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Возвращает сохраненный ответ по ключу или сериализует значение из {@code source}.
+     * Версия читается до данных, поэтому более новые данные могут попасть под старую версию, но не наоборот.
+     */
+    SerializedBody get(String key, Supplier<Object> source) {
+        long version = service.getVersion();
+        Bodies current = bodies;
+        if (current.version != version) {
+            current = new Bodies(version);
+            bodies = current;
+        }
+        return current.byKey.computeIfAbsent(key, k -> serialize(source.get()));
+    }
+
+    private SerializedBody serialize(Object value) {
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(value);
+            ByteArrayOutputStream gzip = new ByteArrayOutputStream(json.length / 2 + 32);
+            try (GZIPOutputStream out = new GZIPOutputStream(gzip)) {
+                out.write(json);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(json);
+            return new SerializedBody(json, gzip.toByteArray(), Long.toHexString(crc.getValue()) + "-" + json.length);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static class Bodies {
+        private final long version;
+        private final Map<String, SerializedBody> byKey = new ConcurrentHashMap<>();
+
+        private Bodies(long version) {
+            this.version = version;
+        }
+    }
+
+    static class SerializedBody {
+        final byte[] json;
+        final byte[] gzip;
+        final String etag;
+
+        private SerializedBody(byte[] json, byte[] gzip, String etag) {
+            this.json = json;
+            this.gzip = gzip;
+            this.etag = etag;
+        }
+    }
+}
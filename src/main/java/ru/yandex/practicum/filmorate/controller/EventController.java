@@ -0,0 +1,40 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.service.EventStreamService;
+
+@Slf4j
+@RestController
+@Profile("!reactive")
+@ConditionalOnProperty(name = "filmorate.sharding.enabled", havingValue = "false", matchIfMissing = true)
+@RequestMapping("/events")
+public class EventController {
+    private final EventStreamService service;
+
+    @Autowired
+    public EventController(EventStreamService service) {
+        this.service = service;
+    }
+
+    /**
+     * Поток изменений после события {@code since}. При переподключении браузер передает номер последнего
+     * полученного события в заголовке Last-Event-ID, он важнее параметра.
+     */
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter getEvents(@RequestParam(defaultValue = "0") long since,
+                                @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        long from = lastEventId != null ? lastEventId : since;
+        log.info("GET /events?since={}", from);
+        return service.subscribe(from);
+    }
+}
@@ -1,8 +1,15 @@
 package ru.yandex.practicum.filmorate.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,82 +17,207 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MultiGet;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.validation.Transfer;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularStreamService;
 
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
 import javax.validation.constraints.Positive;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/films")
 public class FilmController {
+    public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
     private final FilmService service;
+    private final ObjectWriter ndjsonWriter;
+    private final Validator validator;
+    private final JdbcBulkhead bulkhead;
+    private final PopularStreamService popularStream;
 
     @Autowired
-    public FilmController(FilmService service) {
+    public FilmController(FilmService service, ObjectMapper objectMapper, Validator validator, JdbcBulkhead bulkhead,
+                          PopularStreamService popularStream) {
         this.service = service;
+        this.validator = validator;
+        this.bulkhead = bulkhead;
+        this.popularStream = popularStream;
+        this.ndjsonWriter = objectMapper.writerFor(Film.class).without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public Film create(@Validated(Transfer.New.class) @RequestBody Film film) {
+    public CompletableFuture<Film> create(@Validated(Transfer.New.class) @RequestBody Film film) {
         log.info("POST /films");
-        film = service.create(film);
-        log.info("Добавлен фильм с id {}", film.getId());
+        return bulkhead.write(() -> {
+            Film created = service.create(film);
+            log.info("Добавлен фильм с id {}", created.getId());
+            return created;
+        });
+    }
 
-        return film;
+    @PostMapping("/batch")
+    @ResponseStatus(HttpStatus.CREATED)
+    public CompletableFuture<List<Film>> createAll(@RequestBody List<Film> films) {
+        log.info("POST /films/batch, фильмов {}", films.size());
+        Set<ConstraintViolation<Film>> violations = new LinkedHashSet<>();
+        for (Film film : films) {
+            violations.addAll(validator.validate(film, Transfer.New.class));
+        }
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return bulkhead.write(() -> {
+            List<Film> created = service.createAll(films);
+            log.info("Добавлено фильмов: {}", created.size());
+            return created;
+        });
     }
 
     @PutMapping
-    public Film update(@Validated(Transfer.Existing.class) @RequestBody Film film) {
+    public CompletableFuture<Film> update(@Validated(Transfer.Existing.class) @RequestBody Film film) {
         log.info("PUT /films");
-        film = service.update(film);
-        log.info("Обновлен фильм с id {}", film.getId());
-
-        return film;
+        return bulkhead.write(() -> {
+            Film updated = service.update(film);
+            log.info("Обновлен фильм с id {}", updated.getId());
+            return updated;
+        });
     }
 
     @GetMapping
-    public List<Film> getAll() {
+    public CompletableFuture<ResponseEntity<List<Film>>> getAll(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /films");
-        return service.getAll();
+        String etag = "films-" + service.getCollectionVersion();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(ConditionalResponses.notModified(etag));
+        }
+        return bulkhead.read(() -> ConditionalResponses.ok(etag, service.getAll()));
+    }
+
+    @GetMapping(produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAll() {
+        log.info("GET /films ({})", APPLICATION_NDJSON_VALUE);
+        return out -> service.streamAll(film -> {
+            try {
+                ndjsonWriter.writeValue(out, film);
+                out.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<Page<Film>> getPage(@RequestParam Integer limit, @RequestParam(required = false) String after) {
+        log.info("GET /films?limit={}&after={}", limit, after);
+        return bulkhead.read(() -> service.getPage(after, limit));
+    }
+
+    @GetMapping(params = "ids")
+    public CompletableFuture<MultiGet<Film>> getByIds(@RequestParam String ids) {
+        log.info("GET /films?ids={}", ids);
+        return bulkhead.read(() -> service.getByIds(ids));
+    }
+
+    @GetMapping("/search")
+    public CompletableFuture<List<Film>> search(@RequestParam String q, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("GET /films/search?q={}&limit={}", q, limit);
+        return bulkhead.read(() -> service.search(q, limit));
+    }
+
+    @GetMapping("/autocomplete")
+    public List<Film> autocomplete(@RequestParam String prefix, @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("GET /films/autocomplete?prefix={}&limit={}", prefix, limit);
+        return service.autocomplete(prefix, limit);
     }
 
     @GetMapping("/{id}")
-    public Film getById(@PathVariable Integer id) {
+    public CompletableFuture<ResponseEntity<Film>> getById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /films/{}", id);
-        return service.getById(id);
+        return bulkhead.read(() -> {
+            // для условного запроса сначала сверяется только версия строки, фильм с жанрами не загружается
+            if (ifNoneMatch != null) {
+                String etag = filmETag(id, service.getVersion(id));
+                if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+                    return ConditionalResponses.notModified(etag);
+                }
+            }
+            Film film = service.getById(id);
+            return ConditionalResponses.ok(filmETag(id, film.getVersion()), film);
+        });
     }
 
     @PutMapping("/{id}/like/{userId}")
-    public Film setLike(@PathVariable Integer id, @PathVariable Integer userId) {
+    public CompletableFuture<Film> setLike(@PathVariable Integer id, @PathVariable Integer userId) {
         log.info("PUT /films/{}/like/{}", id, userId);
-        Film film = service.setLike(id, userId);
-        log.info("Пользователь с id {} поставил лайк фильму {}", userId, film.getId());
-
-        return film;
+        return bulkhead.write(() -> {
+            Film film = service.setLike(id, userId);
+            log.info("Пользователь с id {} поставил лайк фильму {}", userId, film.getId());
+            return film;
+        });
     }
 
     @DeleteMapping("/{id}/like/{userId}")
-    public Film deleteLike(@PathVariable Integer id, @PathVariable Integer userId) {
+    public CompletableFuture<Film> deleteLike(@PathVariable Integer id, @PathVariable Integer userId) {
         log.info("DELETE /films/{}/like/{}", id, userId);
-        Film film = service.deleteLike(id, userId);
-        log.info("Пользователь с id {} удалил лайк фильму {}", userId, film.getId());
-
-        return film;
+        return bulkhead.write(() -> {
+            Film film = service.deleteLike(id, userId);
+            log.info("Пользователь с id {} удалил лайк фильму {}", userId, film.getId());
+            return film;
+        });
     }
 
     @GetMapping("/popular")
-    public List<Film> getTopPopular(@RequestParam(defaultValue = "10") @Positive Integer count) {
+    public List<Film> getTopPopular(@RequestParam(defaultValue = "10") @Positive Integer count, WebRequest request) {
         log.info("GET /films/popular?count={}", count);
+        if (request.checkNotModified("popular-" + count + "-" + service.getCollectionVersion())) {
+            return null;
+        }
         return service.getTopPopular(count);
     }
+
+    /**
+     * Поток {@code count} популярных фильмов: текущий список сразу и новый при каждом изменении порядка.
+     */
+    @GetMapping(value = "/popular/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamTopPopular(@RequestParam(defaultValue = "10") @Positive Integer count) {
+        log.info("GET /films/popular/stream?count={}", count);
+        return popularStream.subscribe(count);
+    }
+
+    @GetMapping("/trending")
+    public List<Film> getTrending(@RequestParam(defaultValue = "24h") String window,
+                                  @RequestParam(defaultValue = "10") @Positive Integer count) {
+        log.info("GET /films/trending?window={}&count={}", window, count);
+        return service.getTrending(window, count);
+    }
+
+    private static String filmETag(int id, long version) {
+        return "film-" + id + "-" + version;
+    }
 }
 
 
@@ -0,0 +1,102 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.RoutingContext;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Отдельные пулы потоков для чтения и записи в БД, чтобы медленные запросы не занимали потоки Tomcat
+ * и не мешали быстрым. Очереди пулов ограничены: при переполнении задача отклоняется
+ * с {@link RejectedExecutionException}, и клиент получает 503.
+ * Размер очередей и число занятых потоков публикуются метриками filmorate.bulkhead.* с тегом pool.
+ * Задачи выполняются в {@link RoutingContext} запроса: чтение может уйти на реплику, запись - только в основную БД.
+ */
+@Slf4j
+@Component
+class JdbcBulkhead implements MeterBinder {
+    private final ThreadPoolExecutor readExecutor;
+    private final ThreadPoolExecutor writeExecutor;
+
+    @Autowired
+    JdbcBulkhead(@Value("${filmorate.bulkhead.read.threads:16}") int readThreads,
+                 @Value("${filmorate.bulkhead.read.queue-capacity:256}") int readQueueCapacity,
+                 @Value("${filmorate.bulkhead.write.threads:8}") int writeThreads,
+                 @Value("${filmorate.bulkhead.write.queue-capacity:128}") int writeQueueCapacity) {
+        this.readExecutor = newPool("read", readThreads, readQueueCapacity);
+        this.writeExecutor = newPool("write", writeThreads, writeQueueCapacity);
+    }
+
+    <T> CompletableFuture<T> read(Supplier<T> task) {
+        RoutingContext context = RoutingContext.current();
+        return CompletableFuture.supplyAsync(() -> context.read(task), readExecutor);
+    }
+
+    <T> CompletableFuture<T> write(Supplier<T> task) {
+        RoutingContext context = RoutingContext.current();
+        return CompletableFuture.supplyAsync(() -> context.write(task), writeExecutor);
+    }
+
+    CompletableFuture<Void> write(Runnable task) {
+        return write(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        bindPool(registry, "read", readExecutor);
+        bindPool(registry, "write", writeExecutor);
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        readExecutor.shutdown();
+        writeExecutor.shutdown();
+        if (!readExecutor.awaitTermination(10, TimeUnit.SECONDS)
+                || !writeExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+            log.warn("Пулы обращений к БД не завершились за 10 секунд");
+        }
+    }
+
+    private static void bindPool(MeterRegistry registry, String pool, ThreadPoolExecutor executor) {
+        Gauge.builder("filmorate.bulkhead.queue.size", executor, e -> e.getQueue().size())
+                .description("Задачи, ожидающие свободного потока")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("filmorate.bulkhead.queue.remaining", executor, e -> e.getQueue().remainingCapacity())
+                .description("Свободное место в очереди пула")
+                .tag("pool", pool)
+                .register(registry);
+        Gauge.builder("filmorate.bulkhead.active", executor, ThreadPoolExecutor::getActiveCount)
+                .description("Потоки, выполняющие запрос к БД")
+                .tag("pool", pool)
+                .register(registry);
+    }
+
+    private static ThreadPoolExecutor newPool(String pool, int threads, int queueCapacity) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(
+                threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                task -> new Thread(task, "jdbc-" + pool + "-" + threadNumber.incrementAndGet()),
+                (task, executor) -> {
+                    throw new RejectedExecutionException(
+                            "Очередь пула " + pool + " заполнена (" + queueCapacity + " задач), повторите запрос позже");
+                });
+    }
+}
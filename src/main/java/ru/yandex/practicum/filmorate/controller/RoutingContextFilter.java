@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.WebUtils;
+import ru.yandex.practicum.filmorate.storage.RoutingContext;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.Cookie;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Открывает {@link RoutingContext} на время обработки запроса, чтобы все обращения запроса к БД,
+ * в том числе из пулов {@link JdbcBulkhead}, видели его собственные записи.
+ * При чтении с реплик изменяющий запрос ставит клиенту cookie {@value #PRIMARY_UNTIL_COOKIE} со временем,
+ * до которого его запросы читают из основной БД: реплика может отставать, а клиент должен видеть свои изменения
+ * еще {@code read-your-writes-ms} после записи.
+ */
+@Component
+class RoutingContextFilter extends OncePerRequestFilter {
+    static final String PRIMARY_UNTIL_COOKIE = "FILMORATE_PRIMARY_UNTIL";
+    private static final Set<String> SAFE_METHODS = Set.of("GET", "HEAD", "OPTIONS", "TRACE");
+    private final boolean replicasEnabled;
+    private final long readYourWritesMs;
+
+    @Autowired
+    RoutingContextFilter(@Value("${filmorate.datasource.replicas.enabled:false}") boolean replicasEnabled,
+                         @Value("${filmorate.datasource.replicas.read-your-writes-ms:5000}") long readYourWritesMs) {
+        this.replicasEnabled = replicasEnabled;
+        this.readYourWritesMs = readYourWritesMs;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long now = System.currentTimeMillis();
+        if (replicasEnabled && !SAFE_METHODS.contains(request.getMethod())) {
+            // ответ на запись может уйти асинхронно, поэтому cookie ставится до обработки
+            Cookie cookie = new Cookie(PRIMARY_UNTIL_COOKIE, String.valueOf(now + readYourWritesMs));
+            cookie.setPath("/");
+            cookie.setHttpOnly(true);
+            cookie.setMaxAge((int) ((readYourWritesMs + 999) / 1000));
+            response.addCookie(cookie);
+        }
+        RoutingContext.begin(replicasEnabled && primaryUntil(request) > now);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            RoutingContext.end();
+        }
+    }
+
+    private static long primaryUntil(HttpServletRequest request) {
+        Cookie cookie = WebUtils.getCookie(request, PRIMARY_UNTIL_COOKIE);
+        if (cookie == null) {
+            return 0;
+        }
+        try {
+            return Long.parseLong(cookie.getValue());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+}
@@ -2,7 +2,10 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -10,79 +13,135 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MultiGet;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Page;
 import ru.yandex.practicum.filmorate.model.validation.Transfer;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 @Slf4j
 @RestController
+@Profile("!reactive")
 @RequestMapping("/users")
 public class UserController {
     private final UserService service;
+    private final JdbcBulkhead bulkhead;
 
     @Autowired
-    public UserController(UserService service) {
+    public UserController(UserService service, JdbcBulkhead bulkhead) {
         this.service = service;
+        this.bulkhead = bulkhead;
     }
 
     @PostMapping
     @ResponseStatus(HttpStatus.CREATED)
-    public User create(@Validated(Transfer.New.class) @RequestBody User user) {
+    public CompletableFuture<User> create(@Validated(Transfer.New.class) @RequestBody User user) {
         log.info("POST /users");
-        user = service.create(user);
-        log.info("Добавлен пользователь с id {}", user.getId());
-
-        return user;
+        return bulkhead.write(() -> {
+            User created = service.create(user);
+            log.info("Добавлен пользователь с id {}", created.getId());
+            return created;
+        });
     }
 
     @PutMapping
-    public User update(@Validated(Transfer.Existing.class) @RequestBody User user) {
+    public CompletableFuture<User> update(@Validated(Transfer.Existing.class) @RequestBody User user) {
         log.info("PUT /users");
-        user = service.update(user);
-        log.info("Обновлен пользователь с id {}", user.getId());
-
-        return user;
+        return bulkhead.write(() -> {
+            User updated = service.update(user);
+            log.info("Обновлен пользователь с id {}", updated.getId());
+            return updated;
+        });
     }
 
     @GetMapping
-    public List<User> getAll() {
+    public CompletableFuture<ResponseEntity<List<User>>> getAll(
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /users");
-        return service.getAll();
+        String etag = "users-" + service.getCollectionVersion();
+        if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+            return CompletableFuture.completedFuture(ConditionalResponses.notModified(etag));
+        }
+        return bulkhead.read(() -> ConditionalResponses.ok(etag, service.getAll()));
+    }
+
+    @GetMapping(params = "limit")
+    public CompletableFuture<Page<User>> getPage(@RequestParam Integer limit, @RequestParam(required = false) String after) {
+        log.info("GET /users?limit={}&after={}", limit, after);
+        return bulkhead.read(() -> service.getPage(after, limit));
+    }
+
+    @GetMapping(params = "ids")
+    public CompletableFuture<MultiGet<User>> getByIds(@RequestParam String ids) {
+        log.info("GET /users?ids={}", ids);
+        return bulkhead.read(() -> service.getByIds(ids));
     }
 
     @GetMapping("/{id}")
-    public User getById(@PathVariable Integer id) {
+    public CompletableFuture<ResponseEntity<User>> getById(
+            @PathVariable Integer id,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.info("GET /users/{}", id);
-        return service.getById(id);
+        return bulkhead.read(() -> {
+            if (ifNoneMatch != null) {
+                String etag = userETag(id, service.getVersion(id));
+                if (ConditionalResponses.matches(ifNoneMatch, etag)) {
+                    return ConditionalResponses.notModified(etag);
+                }
+            }
+            User user = service.getById(id);
+            return ConditionalResponses.ok(userETag(id, user.getVersion()), user);
+        });
     }
 
     @PutMapping("/{id}/friends/{friendId}")
-    public void addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+    public CompletableFuture<Void> addFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         log.info("PUT /users/{}/friends/{}", id, friendId);
-        service.addFriend(id, friendId);
+        return bulkhead.write(() -> service.addFriend(id, friendId));
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
-    public void deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
+    public CompletableFuture<Void> deleteFriend(@PathVariable Integer id, @PathVariable Integer friendId) {
         log.info("DELETE /users/{}/friends/{}", id, friendId);
-        service.deleteFriend(id, friendId);
+        return bulkhead.write(() -> service.deleteFriend(id, friendId));
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable Integer id) {
+    public CompletableFuture<List<User>> getFriends(@PathVariable Integer id) {
         log.info("GET /users/{}/friends", id);
-        return service.getUserFriends(id);
+        return bulkhead.read(() -> service.getUserFriends(id));
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public CompletableFuture<List<User>> getFriendSuggestions(@PathVariable Integer id,
+                                                             @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("GET /users/{}/friends/suggestions?limit={}", id, limit);
+        return bulkhead.read(() -> service.getFriendSuggestions(id, limit));
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public CompletableFuture<List<Film>> getRecommendations(@PathVariable Integer id,
+                                                           @RequestParam(defaultValue = "10") Integer limit) {
+        log.info("GET /users/{}/recommendations?limit={}", id, limit);
+        return bulkhead.read(() -> service.getRecommendations(id, limit));
     }
 
     @GetMapping("/{id}/friends/common/{otherId}")
-    public List<User> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
+    public CompletableFuture<List<User>> getCommonFriends(@PathVariable Integer id, @PathVariable Integer otherId) {
         log.info("GET /users/{}/friends/common/{}", id, otherId);
-        return service.getCommonFriends(id, otherId);
+        return bulkhead.read(() -> service.getCommonFriends(id, otherId));
     }
 
+    private static String userETag(int id, long version) {
+        return "user-" + id + "-" + version;
+    }
 }
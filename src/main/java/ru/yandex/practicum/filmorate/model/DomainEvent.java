@@ -0,0 +1,19 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+
+/**
+ * Запись OUTBOX: что изменилось и с каким объектом. Сами объекты потребитель загружает по id.
+ */
+@Data
+@Builder
+public class DomainEvent {
+    private final long offset;
+    private final EventType type;
+    private final int entityId;
+    private final Integer relatedId;
+    private final Instant createdAt;
+}
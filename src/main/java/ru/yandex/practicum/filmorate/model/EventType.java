@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+/**
+ * Вид изменения, записанного в OUTBOX.
+ * Для лайков связанный объект - пользователь, для дружбы - пользователь, которому отправлена заявка.
+ */
+public enum EventType {
+    FILM_CREATED,
+    FILM_UPDATED,
+    LIKE_ADDED,
+    LIKE_REMOVED,
+    USER_CREATED,
+    USER_UPDATED,
+    FRIEND_ADDED,
+    FRIEND_REMOVED
+}
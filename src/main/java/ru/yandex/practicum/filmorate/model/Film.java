@@ -1,5 +1,6 @@
 package ru.yandex.practicum.filmorate.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
@@ -40,6 +41,12 @@ public class Film extends IdentifiedModelObject {
     private MpaRating mpa;
     @Setter(AccessLevel.NONE)
     private int likesCount;
+    /**
+     * Версия строки в БД, увеличивается при каждом изменении. Используется для ETag, клиенту не передается.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
 
     public void addGenre(Genre genre) {
         genres.add(genre);
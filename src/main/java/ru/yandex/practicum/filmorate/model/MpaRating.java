@@ -1,8 +1,10 @@
 package ru.yandex.practicum.filmorate.model;
 
+import lombok.AccessLevel;
 import lombok.Data;
 import lombok.EqualsAndHashCode;
 import lombok.NoArgsConstructor;
+import lombok.Setter;
 import lombok.experimental.SuperBuilder;
 
 import javax.validation.constraints.NotBlank;
@@ -14,6 +16,7 @@ import javax.validation.constraints.Size;
 @NoArgsConstructor
 public class MpaRating extends IdentifiedModelObject {
     @NotBlank
+    @Setter(AccessLevel.NONE)
     @Size(max = 10)
     private String name;
 }
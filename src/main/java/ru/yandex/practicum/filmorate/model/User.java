@@ -1,6 +1,7 @@
 package ru.yandex.practicum.filmorate.model;
 
 import com.fasterxml.jackson.annotation.JsonIdentityInfo;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import lombok.AccessLevel;
@@ -33,6 +34,12 @@ public class User extends IdentifiedModelObject {
     private String email;
     @PastOrPresent
     private LocalDate birthday;
+    /**
+     * Версия строки в БД, увеличивается при каждом изменении. Используется для ETag, клиенту не передается.
+     */
+    @JsonIgnore
+    @EqualsAndHashCode.Exclude
+    private long version;
 
     public String getName() {
         return name == null || name.isEmpty() ? login : name;
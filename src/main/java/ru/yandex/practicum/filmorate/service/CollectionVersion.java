@@ -0,0 +1,20 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версия коллекции для ETag списочных запросов, увеличивается при любом изменении коллекции.
+ * Счетчик хранится в памяти, поэтому к нему добавляется время запуска: после перезапуска старые ETag не совпадут.
+ */
+class CollectionVersion {
+    private final long startedAt = System.currentTimeMillis();
+    private final AtomicLong counter = new AtomicLong();
+
+    void increment() {
+        counter.incrementAndGet();
+    }
+
+    String get() {
+        return startedAt + "." + counter.get();
+    }
+}
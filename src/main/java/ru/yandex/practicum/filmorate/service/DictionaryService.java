@@ -5,34 +5,42 @@ import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
 
 import java.util.List;
 
 @Service
 public class DictionaryService {
-    private final DictionaryDbStorage dictionaryStorage;
+    private final DictionaryCache dictionaryCache;
 
     @Autowired
-    public DictionaryService(DictionaryDbStorage dictionaryStorage) {
-        this.dictionaryStorage = dictionaryStorage;
+    public DictionaryService(DictionaryCache dictionaryCache) {
+        this.dictionaryCache = dictionaryCache;
     }
 
     public List<Genre> getAllGenres() {
-        return dictionaryStorage.getAllGenres();
+        return dictionaryCache.getAllGenres();
     }
 
     public Genre getGenreById(Integer id) {
-        return dictionaryStorage.getGenreById(id)
+        return dictionaryCache.getGenreById(id)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден жанр с id = " + id));
     }
 
     public MpaRating getMpaById(Integer id) {
-        return dictionaryStorage.getMpaById(id)
+        return dictionaryCache.getMpaById(id)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден рейтинг МРА с id = " + id));
     }
 
     public List<MpaRating> getAllMpa() {
-        return dictionaryStorage.getAllMpa();
+        return dictionaryCache.getAllMpa();
+    }
+
+    public long getVersion() {
+        return dictionaryCache.getVersion();
+    }
+
+    public void refresh() {
+        dictionaryCache.reload();
     }
 }
@@ -0,0 +1,225 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.DomainEvent;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка записей OUTBOX подписчикам GET /events.
+ * Один поток читает таблицу пачками по {@code batch-size} после наименьшего номера, до которого дошли подписчики,
+ * и рассылает каждому записи после его номера. Поток спит до фиксации новой записи или не дольше
+ * {@code poll-interval-ms}, пока подписчиков нет - таблицу не читает.
+ * Номера выдаются при вставке, а фиксируются транзакции в другом порядке, поэтому после пропуска в номерах
+ * записи не отправляются, пока пропуск не заполнится или запись за ним не станет старше {@code gap-timeout-ms}:
+ * так подписчик не проскочит запись еще не зафиксированной транзакции.
+ * Поток рассылки только кладет события в очередь подписчика размером {@code subscriber-queue-size}, отправляют их
+ * {@code send-threads} потоков. Подписчик, очередь которого переполнилась, отключается и может переподключиться
+ * с Last-Event-ID.
+ * Раз в {@code retention-check-interval-ms} тот же поток удаляет записи старше {@code retention-hours},
+ * которые уже получили все подключенные подписчики.
+ * С шардированием OUTBOX не ведется, и сервис не создается.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+@ConditionalOnProperty(name = "filmorate.sharding.enabled", havingValue = "false", matchIfMissing = true)
+public class EventStreamService {
+    private final EventDbStorage eventStorage;
+    private final int batchSize;
+    private final long pollIntervalMs;
+    private final long gapTimeoutMs;
+    private final long emitterTimeoutMs;
+    private final int subscriberQueueSize;
+    private final Duration retention;
+    private final long retentionCheckIntervalMs;
+    private final ExecutorService sender;
+    private final List<Subscriber> subscribers = new CopyOnWriteArrayList<>();
+    private final Object monitor = new Object();
+    private final Thread dispatcher;
+    private boolean dirty;
+    private long lastRetentionCheckMs;
+    private volatile boolean running = true;
+
+    @Autowired
+    public EventStreamService(EventDbStorage eventStorage,
+                              @Value("${filmorate.events.batch-size:500}") int batchSize,
+                              @Value("${filmorate.events.poll-interval-ms:1000}") long pollIntervalMs,
+                              @Value("${filmorate.events.gap-timeout-ms:2000}") long gapTimeoutMs,
+                              @Value("${filmorate.events.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                              @Value("${filmorate.events.subscriber-queue-size:1000}") int subscriberQueueSize,
+                              @Value("${filmorate.events.send-threads:4}") int sendThreads,
+                              @Value("${filmorate.events.retention-hours:168}") long retentionHours,
+                              @Value("${filmorate.events.retention-check-interval-ms:600000}") long retentionCheckIntervalMs) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки событий должен быть положительным, получено " + batchSize);
+        }
+        if (subscriberQueueSize <= 0) {
+            throw new IllegalArgumentException("Размер очереди подписчика должен быть положительным, получено "
+                                                       + subscriberQueueSize);
+        }
+        this.eventStorage = eventStorage;
+        this.batchSize = batchSize;
+        this.pollIntervalMs = pollIntervalMs;
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.subscriberQueueSize = subscriberQueueSize;
+        this.retention = Duration.ofHours(retentionHours);
+        this.retentionCheckIntervalMs = retentionCheckIntervalMs;
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(sendThreads, r -> {
+            Thread thread = new Thread(r, "event-stream-send-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        dispatcher = new Thread(this::dispatchLoop, "event-stream");
+        dispatcher.setDaemon(true);
+    }
+
+    /**
+     * Подписывается на новые записи OUTBOX и запускает поток рассылки после создания бина, а не в конструкторе.
+     */
+    @PostConstruct
+    public void start() {
+        eventStorage.addListener(this::wakeUp);
+        dispatcher.start();
+    }
+
+    /**
+     * Подписка на записи с номером больше {@code since}.
+     */
+    public SseEmitter subscribe(long since) {
+        if (since < 0) {
+            throw new IllegalArgumentException("Номер события не может быть отрицательным, получено " + since);
+        }
+        Subscriber subscriber = new Subscriber(new SseSubscriber(new SseEmitter(emitterTimeoutMs), subscriberQueueSize, sender,
+                                                                 sink -> subscribers.removeIf(s -> s.sink == sink)),
+                                               since);
+        subscribers.add(subscriber);
+        log.debug("Новый подписчик на события после {}, подписчиков {}", since, subscribers.size());
+        wakeUp();
+        return subscriber.sink.getEmitter();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        dispatcher.interrupt();
+        subscribers.forEach(subscriber -> subscriber.sink.complete());
+        subscribers.clear();
+        sender.shutdown();
+    }
+
+    private void wakeUp() {
+        synchronized (monitor) {
+            dirty = true;
+            monitor.notifyAll();
+        }
+    }
+
+    private void dispatchLoop() {
+        while (running) {
+            try {
+                synchronized (monitor) {
+                    if (!dirty) {
+                        monitor.wait(pollIntervalMs);
+                    }
+                    dirty = false;
+                }
+                while (running && dispatch()) {
+                    // следующая пачка
+                }
+                deleteExpired();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Не удалось разослать события: {}", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Рассылает одну пачку.
+     *
+     * @return true, если пачка была полной, подписчики продвинулись и за ней могут быть еще записи
+     */
+    private boolean dispatch() {
+        if (subscribers.isEmpty()) {
+            return false;
+        }
+        long from = minOffset();
+        List<DomainEvent> events = eventStorage.getAfter(from, batchSize);
+        for (Subscriber subscriber : subscribers) {
+            send(subscriber, events);
+        }
+        return events.size() == batchSize && minOffset() > from;
+    }
+
+    /**
+     * Удаляет записи старше срока хранения, но не дальше наименьшего номера подключенных подписчиков.
+     */
+    private void deleteExpired() {
+        long now = System.currentTimeMillis();
+        if (now - lastRetentionCheckMs < retentionCheckIntervalMs) {
+            return;
+        }
+        lastRetentionCheckMs = now;
+        int deleted = eventStorage.deleteOlderThan(minOffset(), Instant.ofEpochMilli(now).minus(retention));
+        if (deleted > 0) {
+            log.info("Удалено {} записей OUTBOX старше {} ч", deleted, retention.toHours());
+        }
+    }
+
+    private long minOffset() {
+        return subscribers.stream().mapToLong(subscriber -> subscriber.offset).min().orElse(Long.MAX_VALUE);
+    }
+
+    /**
+     * Ставит записи в очередь подписчика. Номер подписчика продвигается при постановке в очередь:
+     * отставший подписчик отключается, а не задерживает чтение таблицы для остальных.
+     */
+    private void send(Subscriber subscriber, List<DomainEvent> events) {
+        Instant gapDeadline = Instant.now().minusMillis(gapTimeoutMs);
+        for (DomainEvent event : events) {
+            if (event.getOffset() <= subscriber.offset) {
+                continue;
+            }
+            if (event.getOffset() != subscriber.offset + 1 && event.getCreatedAt().isAfter(gapDeadline)) {
+                return;
+            }
+            if (!subscriber.sink.offer(SseEmitter.event()
+                                               .id(String.valueOf(event.getOffset()))
+                                               .name(event.getType().name())
+                                               .data(event))) {
+                return;
+            }
+            subscriber.offset = event.getOffset();
+        }
+    }
+
+    private static class Subscriber {
+        private final SseSubscriber sink;
+        private volatile long offset;
+
+        private Subscriber(SseSubscriber sink, long offset) {
+            this.sink = sink;
+            this.offset = offset;
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Рейтинг фильмов по количеству лайков, который поддерживается в памяти.
+ * Изменение количества лайков стоит O(log n), выборка первых N фильмов - O(N).
+ * В памяти хранятся только идентификаторы, счетчики лайков и названия для подсказок, сами фильмы
+ * загружаются из хранилища одним запросом на выборку, уже после снятия блокировки.
+ */
+class FilmLeaderboard {
+    private static final Comparator<Entry> ORDER = Comparator.comparingInt((Entry e) -> e.likesCount)
+            .reversed()
+            .thenComparingInt(e -> e.filmId);
+
+    private final Function<int[], List<Film>> loader;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeSet<Entry> ranking = new TreeSet<>(ORDER);
+    private final Map<Integer, Entry> entries = new HashMap<>();
+    private final Map<Integer, String> names = new HashMap<>();
+    private final FilmTitleIndex titles = new FilmTitleIndex();
+
+    /**
+     * @param loader загрузка фильмов по идентификаторам в порядке идентификаторов, отсутствующие пропускаются
+     */
+    FilmLeaderboard(Function<int[], List<Film>> loader) {
+        this.loader = loader;
+    }
+
+    void reload(Consumer<Consumer<Film>> source) {
+        lock.writeLock().lock();
+        try {
+            ranking.clear();
+            entries.clear();
+            names.clear();
+            source.accept(film -> {
+                putEntry(film.getId(), film.getLikesCount());
+                names.put(film.getId(), film.getName());
+            });
+            titles.build(names);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            putEntry(film.getId(), film.getLikesCount());
+            String previous = names.put(film.getId(), film.getName());
+            if (previous != null) {
+                titles.remove(previous, film.getId());
+            }
+            titles.add(film.getName(), film.getId());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void changeLikes(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Entry entry = entries.get(filmId);
+            if (entry == null) {
+                return;
+            }
+            putEntry(filmId, entry.likesCount + delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    List<Film> top(int count) {
+        List<Entry> selected;
+        lock.readLock().lock();
+        try {
+            selected = new ArrayList<>(Math.min(count, ranking.size()));
+            Iterator<Entry> iterator = ranking.iterator();
+            while (selected.size() < count && iterator.hasNext()) {
+                selected.add(iterator.next());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(selected);
+    }
+
+    /**
+     * Самые популярные фильмы, название которых начинается с {@code prefix}, без учета регистра.
+     * Совпадения отбираются кучей размера {@code count}, поэтому стоимость - O(m log count) для m совпадений.
+     */
+    List<Film> autocomplete(String prefix, int count) {
+        List<Entry> sorted;
+        lock.readLock().lock();
+        try {
+            PriorityQueue<Entry> best = new PriorityQueue<>(count + 1, ORDER.reversed());
+            titles.forEachWithPrefix(prefix, filmId -> {
+                best.add(entries.get(filmId));
+                if (best.size() > count) {
+                    best.poll();
+                }
+            });
+            sorted = new ArrayList<>(best);
+        } finally {
+            lock.readLock().unlock();
+        }
+        sorted.sort(ORDER);
+        return load(sorted);
+    }
+
+    /**
+     * Фильм из хранилища с заданным количеством лайков, например, только что прочитанным из БД.
+     */
+    Optional<Film> get(int filmId, int likesCount) {
+        return loader.apply(new int[]{filmId}).stream().findFirst().map(film -> copy(film, likesCount));
+    }
+
+    /**
+     * Несколько фильмов по идентификаторам в порядке переданного списка. Каждому фильму проставляется
+     * количество лайков из рейтинга, фильмы, которых уже нет в рейтинге, пропускаются.
+     */
+    List<Film> getAll(List<Integer> filmIds) {
+        List<Entry> selected = new ArrayList<>(filmIds.size());
+        lock.readLock().lock();
+        try {
+            for (int filmId : filmIds) {
+                Entry entry = entries.get(filmId);
+                if (entry != null) {
+                    selected.add(entry);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return load(selected);
+    }
+
+    Map<Integer, Integer> getLikesCounts() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Integer> counts = new HashMap<>(entries.size());
+            entries.forEach((id, entry) -> counts.put(id, entry.likesCount));
+            return counts;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void putEntry(int filmId, int likesCount) {
+        Entry entry = new Entry(filmId, likesCount);
+        Entry previous = entries.put(filmId, entry);
+        if (previous != null) {
+            ranking.remove(previous);
+        }
+        ranking.add(entry);
+    }
+
+    /**
+     * Загружает фильмы выборки одним запросом. Количество лайков берется из рейтинга: с отложенной записью
+     * счетчик в БД может еще не включать последние лайки.
+     */
+    private List<Film> load(List<Entry> selected) {
+        if (selected.isEmpty()) {
+            return List.of();
+        }
+        Map<Integer, Integer> likesCounts = new HashMap<>(selected.size());
+        selected.forEach(entry -> likesCounts.put(entry.filmId, entry.likesCount));
+        int[] ids = selected.stream().mapToInt(entry -> entry.filmId).toArray();
+        return loader.apply(ids).stream()
+                .map(film -> copy(film, likesCounts.get(film.getId())))
+                .collect(Collectors.toList());
+    }
+
+    private static Film copy(Film film, int likesCount) {
+        Film copy = Film.builder()
+                .id(film.getId())
+                .name(film.getName())
+                .description(film.getDescription())
+                .releaseDate(film.getReleaseDate())
+                .duration(film.getDuration())
+                .mpa(film.getMpa())
+                .likesCount(likesCount)
+                .version(film.getVersion())
+                .build();
+        film.getGenres().forEach(copy::addGenre);
+        return copy;
+    }
+
+    private static class Entry {
+        private final int filmId;
+        private final int likesCount;
+
+        private Entry(int filmId, int likesCount) {
+            this.filmId = filmId;
+            this.likesCount = likesCount;
+        }
+    }
+}
@@ -1,68 +1,279 @@
 package ru.yandex.practicum.filmorate.service;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MultiGet;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikeChange;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountDrift;
+import ru.yandex.practicum.filmorate.storage.film.LikesCounterBuffer;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
+@Slf4j
 @Service
-public class FilmService {
+public class FilmService implements Reloadable {
+    public static final int MAX_BATCH_SIZE = 10_000;
+    public static final int MAX_SEARCH_RESULTS = 100;
+    public static final int MAX_POPULAR_COUNT = 1000;
     private final FilmStorage filmStorage;
     private final UserStorage userStorage;
+    private final FilmLeaderboard leaderboard;
+    private final FilmTrending trending = new FilmTrending();
+    private final CollectionVersion collectionVersion = new CollectionVersion();
+    private final List<Runnable> likesListeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService trendingRotation;
+    private final long trendingRotationIntervalMs;
 
     @Autowired
-    public FilmService(@Qualifier("filmDbStorage") FilmStorage filmStorage,
-                       @Qualifier("userDbStorage") UserStorage userStorage) {
+    public FilmService(FilmStorage filmStorage,
+                       UserStorage userStorage,
+                       LikesCounterBuffer likesCounterBuffer,
+                       @Value("${filmorate.films.trending.rotation-interval-ms:60000}") long trendingRotationIntervalMs) {
         this.filmStorage = filmStorage;
         this.userStorage = userStorage;
+        this.leaderboard = new FilmLeaderboard(filmStorage::getByIds);
+        // отложенная запись меняет LIKES_COUNT и VERSION фильмов позже лайка: ответы, закешированные до сброса, устаревают
+        likesCounterBuffer.addListener(collectionVersion::increment);
+        this.trendingRotationIntervalMs = trendingRotationIntervalMs;
+        trendingRotation = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "trending-rotation");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Запускает переход счетчиков GET /films/trending к новому часу после создания бина, а не в конструкторе.
+     */
+    @PostConstruct
+    public void startTrendingRotation() {
+        trendingRotation.scheduleWithFixedDelay(() -> trending.rotate(Instant.now()),
+                                                trendingRotationIntervalMs, trendingRotationIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        leaderboard.reload(filmStorage::streamAll);
+        Instant now = Instant.now();
+        Instant since = now.minus(FilmTrending.SLICE.multipliedBy(FilmTrending.SLICES - 1));
+        trending.reload(now, consumer -> filmStorage.streamHourlyLikes(since, consumer));
+        onRankingChanged();
+        log.info("Загружен рейтинг популярности фильмов");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        trendingRotation.shutdownNow();
+    }
+
+    /**
+     * Подписчик вызывается после каждого изменения рейтинга - числа лайков или самих фильмов, в потоке,
+     * который его изменил.
+     */
+    public void addLikesListener(Runnable listener) {
+        likesListeners.add(listener);
     }
 
     public Film create(Film film) {
-        return filmStorage.create(film);
+        film = filmStorage.create(film);
+        leaderboard.put(film);
+        onRankingChanged();
+        return film;
+    }
+
+    public List<Film> createAll(List<Film> films) {
+        if (films.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException(
+                    "За один запрос можно добавить не более " + MAX_BATCH_SIZE + " фильмов, получено " + films.size());
+        }
+        if (films.isEmpty()) {
+            return films;
+        }
+        films = filmStorage.createAll(films);
+        films.forEach(leaderboard::put);
+        onRankingChanged();
+        return films;
     }
 
     public Film update(Film film) {
-        return filmStorage.update(film)
+        Film updated = filmStorage.update(film)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм для обновления с id = " + film.getId()));
+        leaderboard.put(updated);
+        onRankingChanged();
+        return updated;
     }
 
     public List<Film> getAll() {
         return filmStorage.getAll();
     }
 
+    public Page<Film> getPage(String after, int limit) {
+        PageCursor.checkLimit(limit);
+        return PageCursor.toPage(filmStorage.getPage(PageCursor.decode(after), limit + 1), limit);
+    }
+
+    public void streamAll(Consumer<Film> consumer) {
+        filmStorage.streamAll(consumer);
+    }
+
     public Film getById(Integer id) {
         return filmStorage.getById(id)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм с id = " + id));
     }
 
+    /**
+     * Фильмы по списку идентификаторов через запятую, в порядке списка.
+     */
+    public MultiGet<Film> getByIds(String ids) {
+        int[] parsed = IdList.parse(ids);
+        return IdList.toMultiGet(parsed, filmStorage.getByIds(parsed));
+    }
+
+    public long getVersion(int id) {
+        return filmStorage.getVersion(id)
+                .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм с id = " + id));
+    }
+
+    /**
+     * Версия списка фильмов и рейтинга популярности. Меняется при добавлении и изменении фильмов и лайков.
+     */
+    public String getCollectionVersion() {
+        return collectionVersion.get();
+    }
+
+    /**
+     * Ставит лайк одним запросом к хранилищу. Повторный лайк ничего не меняет.
+     *
+     * @return фильм с количеством лайков из БД
+     */
     public Film setLike(Integer filmId, Integer userId) {
-        if (userStorage.getById(userId).isEmpty()) {
-            throw new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId + " для постановки лайка");
+        LikeChange change = filmStorage.saveLike(filmId, userId);
+        if (change.isChanged()) {
+            leaderboard.changeLikes(filmId, 1);
+            trending.add(filmId, change.getLikedAt(), 1);
+            onRankingChanged();
         }
-        Film film = filmStorage.getById(filmId)
-                .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм для лайка с id = " + filmId));
-        filmStorage.saveLike(filmId, userId);
-        film.addLike();
-        return film;
+        return toLikedFilm(filmId, change);
     }
 
+    /**
+     * Удаляет лайк одним запросом к хранилищу. Если лайка не было, проверяет, что пользователь существует.
+     *
+     * @return фильм с количеством лайков из БД
+     */
     public Film deleteLike(Integer id, Integer userId) {
-        if (userStorage.getById(userId).isEmpty()) {
+        LikeChange change = filmStorage.deleteLike(id, userId);
+        if (change.isChanged()) {
+            leaderboard.changeLikes(id, -1);
+            trending.add(id, change.getLikedAt(), -1);
+            onRankingChanged();
+        } else if (userStorage.getVersion(userId).isEmpty()) {
             throw new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId + " для удаления лайка");
         }
-        Film film = filmStorage.getById(id)
-                .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм для удаления лайка с id = " + id));
-        filmStorage.deleteLike(id, userId);
-        film.deleteLike();
-        return film;
+        return toLikedFilm(id, change);
+    }
+
+    public List<Film> search(String query, int limit) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Строка поиска не должна быть пустой");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException(
+                    "Количество результатов поиска должно быть от 1 до " + MAX_SEARCH_RESULTS + ", получено " + limit);
+        }
+        return filmStorage.search(query, limit);
+    }
+
+    public List<Film> autocomplete(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            throw new IllegalArgumentException("Префикс названия не должен быть пустым");
+        }
+        if (limit <= 0 || limit > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException(
+                    "Количество подсказок должно быть от 1 до " + MAX_SEARCH_RESULTS + ", получено " + limit);
+        }
+        return leaderboard.autocomplete(prefix, limit);
     }
 
     public List<Film> getTopPopular(Integer count) {
-        return filmStorage.getTopPopular(count);
+        if (count <= 0 || count > MAX_POPULAR_COUNT) {
+            throw new IllegalArgumentException(
+                    "Количество популярных фильмов должно быть от 1 до " + MAX_POPULAR_COUNT + ", получено " + count);
+        }
+        return leaderboard.top(count);
+    }
+
+    /**
+     * Фильмы с наибольшим числом лайков за последние сутки или неделю, с точностью до часа.
+     */
+    public List<Film> getTrending(String window, Integer count) {
+        if (count <= 0 || count > MAX_POPULAR_COUNT) {
+            throw new IllegalArgumentException(
+                    "Количество популярных фильмов должно быть от 1 до " + MAX_POPULAR_COUNT + ", получено " + count);
+        }
+        int hours = TrendingWindow.parse(window).getHours();
+        return leaderboard.getAll(trending.top(hours, count, Instant.now()));
+    }
+
+    private void onRankingChanged() {
+        collectionVersion.increment();
+        likesListeners.forEach(Runnable::run);
+    }
+
+    /**
+     * Фильм загружается из хранилища, количество лайков берется из результата операции.
+     */
+    private Film toLikedFilm(int filmId, LikeChange change) {
+        return leaderboard.get(filmId, change.getLikesCount()).orElseGet(() -> getById(filmId));
+    }
+
+    /**
+     * Переносит в рейтинг исправления счетчиков лайков, записанные сверкой с LIKES. Рейтинг сдвигается на те же
+     * величины, что и счетчики в БД, поэтому лайки, пришедшие во время сверки, не теряются.
+     */
+    void applyLikesCountCorrections(List<LikesCountDrift> corrections) {
+        if (corrections.isEmpty()) {
+            return;
+        }
+        corrections.forEach(drift -> leaderboard.changeLikes(drift.getFilmId(), drift.getDelta()));
+        onRankingChanged();
+    }
+
+    /**
+     * Сверяет количество лайков в рейтинге с FILMS.LIKES_COUNT.
+     *
+     * @return идентификаторы фильмов, по которым рейтинг расходится с БД
+     */
+    public Set<Integer> findLeaderboardMismatches() {
+        Map<Integer, Integer> expected = filmStorage.getLikesCounts();
+        Map<Integer, Integer> actual = leaderboard.getLikesCounts();
+        Set<Integer> mismatches = new TreeSet<>();
+        expected.forEach((id, count) -> {
+            if (!count.equals(actual.get(id))) {
+                mismatches.add(id);
+            }
+        });
+        actual.keySet().stream().filter(id -> !expected.containsKey(id)).forEach(mismatches::add);
+        return mismatches;
     }
 }
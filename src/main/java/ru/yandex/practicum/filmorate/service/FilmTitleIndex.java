@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Названия фильмов в отсортированных параллельных массивах для поиска по префиксу.
+ * Префикс находится двоичным поиском, совпадения лежат подряд.
+ * Не потокобезопасен, синхронизацию обеспечивает {@link FilmLeaderboard}.
+ */
+class FilmTitleIndex {
+    private String[] titles = new String[16];
+    private int[] filmIds = new int[16];
+    private int size;
+
+    static String normalize(String text) {
+        return text == null ? "" : text.strip().toLowerCase(Locale.ROOT).replace('ё', 'е');
+    }
+
+    /**
+     * Заполняет индекс заново: все пары (название, id) сортируются один раз, O(n log n),
+     * вместо n вставок со сдвигом массивов, O(n^2).
+     */
+    void build(Map<Integer, String> namesById) {
+        int count = namesById.size();
+        String[] keys = new String[count];
+        int[] ids = new int[count];
+        int i = 0;
+        for (Map.Entry<Integer, String> name : namesById.entrySet()) {
+            keys[i] = normalize(name.getValue());
+            ids[i++] = name.getKey();
+        }
+        Integer[] order = new Integer[count];
+        Arrays.setAll(order, k -> k);
+        Arrays.sort(order, Comparator.<Integer, String>comparing(k -> keys[k]).thenComparingInt(k -> ids[k]));
+
+        titles = new String[Math.max(16, count)];
+        filmIds = new int[titles.length];
+        for (i = 0; i < count; i++) {
+            titles[i] = keys[order[i]];
+            filmIds[i] = ids[order[i]];
+        }
+        size = count;
+    }
+
+    void add(String title, int filmId) {
+        String key = normalize(title);
+        int index = -(indexOf(key, filmId) + 1);
+        if (index < 0) {
+            return;
+        }
+        if (size == titles.length) {
+            titles = Arrays.copyOf(titles, size * 2);
+            filmIds = Arrays.copyOf(filmIds, size * 2);
+        }
+        System.arraycopy(titles, index, titles, index + 1, size - index);
+        System.arraycopy(filmIds, index, filmIds, index + 1, size - index);
+        titles[index] = key;
+        filmIds[index] = filmId;
+        size++;
+    }
+
+    void remove(String title, int filmId) {
+        int index = indexOf(normalize(title), filmId);
+        if (index < 0) {
+            return;
+        }
+        System.arraycopy(titles, index + 1, titles, index, size - index - 1);
+        System.arraycopy(filmIds, index + 1, filmIds, index, size - index - 1);
+        titles[--size] = null;
+    }
+
+    /**
+     * Передает идентификаторы всех фильмов, название которых начинается с {@code prefix}.
+     */
+    void forEachWithPrefix(String prefix, IntConsumer consumer) {
+        String key = normalize(prefix);
+        int index = -(indexOf(key, Integer.MIN_VALUE) + 1);
+        while (index < size && titles[index].startsWith(key)) {
+            consumer.accept(filmIds[index++]);
+        }
+    }
+
+    /**
+     * Двоичный поиск пары (название, id) в порядке сортировки по названию, затем по id.
+     * Возвращает индекс найденной пары или {@code -(точка вставки) - 1}.
+     */
+    private int indexOf(String key, int filmId) {
+        int low = 0;
+        int high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = titles[mid].compareTo(key);
+            if (cmp == 0) {
+                cmp = Integer.compare(filmIds[mid], filmId);
+            }
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -(low + 1);
+    }
+}
@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.storage.film.HourlyLikes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Счетчики лайков по часам за последнюю неделю, которые поддерживаются в памяти.
+ * Для каждого фильма с недавними лайками хранится кольцевой буфер на {@link #SLICES} часовых отрезков.
+ * При переходе к новому часу устаревшие отрезки обнуляются, а фильмы без недавних лайков удаляются.
+ */
+class FilmTrending {
+    static final Duration SLICE = Duration.ofHours(1);
+    static final int SLICES = 7 * 24;
+    private static final Comparator<long[]> ORDER = Comparator.comparingLong((long[] e) -> e[1])
+            .reversed()
+            .thenComparingLong(e -> e[0]);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Integer, int[]> counters = new HashMap<>();
+    private long currentSlice;
+
+    FilmTrending() {
+        currentSlice = sliceOf(Instant.now());
+    }
+
+    void reload(Instant now, Consumer<Consumer<HourlyLikes>> source) {
+        lock.writeLock().lock();
+        try {
+            counters.clear();
+            currentSlice = sliceOf(now);
+            source.accept(likes -> addUnlocked(likes.getFilmId(), likes.getHour(), likes.getCount()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Изменяет счетчик отрезка, в который попадает {@code at}. Лайки старше недели не учитываются.
+     */
+    void add(int filmId, Instant at, int delta) {
+        lock.writeLock().lock();
+        try {
+            addUnlocked(filmId, at, delta);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Переходит к отрезку, в который попадает {@code now}, и обнуляет отрезки, вышедшие за неделю.
+     */
+    void rotate(Instant now) {
+        lock.writeLock().lock();
+        try {
+            advance(sliceOf(now));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Идентификаторы не более {@code count} фильмов с наибольшим числом лайков за последние {@code slices} отрезков.
+     * Отбор идет кучей размера {@code count}, поэтому стоимость - O(n * slices + n log count) для n фильмов.
+     * Блокировка записи берется, только если с последнего обращения начался новый час.
+     */
+    List<Integer> top(int slices, int count, Instant now) {
+        long slice = sliceOf(now);
+        lock.readLock().lock();
+        if (slice > currentSlice) {
+            // отрезок сменился; блокировку чтения нельзя повысить до записи, но запись можно понизить до чтения
+            lock.readLock().unlock();
+            lock.writeLock().lock();
+            try {
+                advance(slice);
+                lock.readLock().lock();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+        try {
+            PriorityQueue<long[]> best = new PriorityQueue<>(Math.min(count, counters.size()) + 1, ORDER.reversed());
+            counters.forEach((filmId, slots) -> {
+                long likes = 0;
+                for (int i = 0; i < slices; i++) {
+                    likes += slots[index(currentSlice - i)];
+                }
+                if (likes > 0) {
+                    best.add(new long[]{filmId, likes});
+                    if (best.size() > count) {
+                        best.poll();
+                    }
+                }
+            });
+            List<long[]> sorted = new ArrayList<>(best);
+            sorted.sort(ORDER);
+            List<Integer> filmIds = new ArrayList<>(sorted.size());
+            sorted.forEach(e -> filmIds.add((int) e[0]));
+            return filmIds;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void addUnlocked(int filmId, Instant at, int delta) {
+        long slice = sliceOf(at);
+        advance(slice);
+        if (slice <= currentSlice - SLICES) {
+            return;
+        }
+        counters.computeIfAbsent(filmId, id -> new int[SLICES])[index(slice)] += delta;
+    }
+
+    private void advance(long slice) {
+        if (slice <= currentSlice) {
+            return;
+        }
+        long expired = Math.min(slice - currentSlice, SLICES);
+        counters.values().removeIf(slots -> {
+            for (long i = 1; i <= expired; i++) {
+                slots[index(currentSlice + i)] = 0;
+            }
+            return Arrays.stream(slots).allMatch(likes -> likes == 0);
+        });
+        currentSlice = slice;
+    }
+
+    private static int index(long slice) {
+        return (int) Math.floorMod(slice, SLICES);
+    }
+
+    private static long sliceOf(Instant at) {
+        return Math.floorDiv(at.toEpochMilli(), SLICE.toMillis());
+    }
+}
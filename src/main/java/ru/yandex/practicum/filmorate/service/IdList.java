@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.IdentifiedModelObject;
+import ru.yandex.practicum.filmorate.model.MultiGet;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Список идентификаторов для выборки нескольких объектов одним запросом: {@code ids=1,2,3}.
+ */
+public final class IdList {
+    public static final int MAX_SIZE = 1000;
+
+    private IdList() {
+    }
+
+    /**
+     * Разбирает список через запятую. Повторы отбрасываются, порядок первых вхождений сохраняется.
+     */
+    public static int[] parse(String ids) {
+        if (ids == null || ids.isBlank()) {
+            throw new IllegalArgumentException("Список идентификаторов не должен быть пустым");
+        }
+        Set<Integer> unique = new LinkedHashSet<>();
+        for (String id : ids.split(",")) {
+            try {
+                unique.add(Integer.parseInt(id.trim()));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Некорректный идентификатор в списке: " + id);
+            }
+        }
+        if (unique.size() > MAX_SIZE) {
+            throw new IllegalArgumentException(
+                    "За один запрос можно получить не более " + MAX_SIZE + " объектов, получено " + unique.size());
+        }
+        return unique.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Дополняет найденные объекты, уже упорядоченные по {@code ids}, списком ненайденных идентификаторов.
+     */
+    public static <T extends IdentifiedModelObject> MultiGet<T> toMultiGet(int[] ids, List<T> items) {
+        Set<Integer> found = items.stream().map(IdentifiedModelObject::getId).collect(Collectors.toSet());
+        return MultiGet.<T>builder()
+                .items(items)
+                .missingIds(Arrays.stream(ids).filter(id -> !found.contains(id)).boxed().collect(Collectors.toList()))
+                .build();
+    }
+}
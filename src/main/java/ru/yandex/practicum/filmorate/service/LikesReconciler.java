@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountDrift;
+import ru.yandex.practicum.filmorate.storage.film.LikesCountScan;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сверка денормализованных счетчиков FILMS.LIKES_COUNT с таблицей LIKES.
+ * Фильмы проверяются диапазонами идентификаторов по {@code chunk-size}, каждый диапазон отдельными короткими
+ * запросами, поэтому таблица не блокируется надолго. В режиме {@code dry-run} расхождения только подсчитываются.
+ * Во включенном режиме сверка запускается раз в {@code interval-ms} миллисекунд, вручную - через
+ * POST /admin/likes/reconciliation.
+ */
+@Slf4j
+@Component
+public class LikesReconciler {
+    static final int SAMPLE_SIZE = 100;
+    private final FilmStorage filmStorage;
+    private final FilmService filmService;
+    private final int chunkSize;
+    private final boolean dryRun;
+    private final ScheduledExecutorService scheduler;
+    private volatile LikesReconciliationReport lastReport;
+
+    @Autowired
+    public LikesReconciler(FilmStorage filmStorage,
+                           FilmService filmService,
+                           @Value("${filmorate.likes.reconciler.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.reconciler.interval-ms:600000}") long intervalMs,
+                           @Value("${filmorate.likes.reconciler.chunk-size:1000}") int chunkSize,
+                           @Value("${filmorate.likes.reconciler.dry-run:false}") boolean dryRun) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Размер диапазона сверки должен быть положительным, получено " + chunkSize);
+        }
+        this.filmStorage = filmStorage;
+        this.filmService = filmService;
+        this.chunkSize = chunkSize;
+        this.dryRun = dryRun;
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "likes-reconciler");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::runQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+            log.info("Включена сверка счетчиков лайков, интервал {} мс, только проверка: {}", intervalMs, dryRun);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public Optional<LikesReconciliationReport> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    /**
+     * Сверка в режиме из настроек.
+     */
+    public LikesReconciliationReport run() {
+        return run(dryRun);
+    }
+
+    /**
+     * Проходит все фильмы диапазонами и исправляет расхождения, если {@code dryRun} не задан.
+     * Проходы не пересекаются: ручной запуск дожидается окончания планового.
+     */
+    public synchronized LikesReconciliationReport run(boolean dryRun) {
+        Instant startedAt = Instant.now();
+        int maxId = filmStorage.getMaxId();
+        int chunks = 0;
+        int filmsChecked = 0;
+        int filmsDrifted = 0;
+        int filmsFixed = 0;
+        long totalDrift = 0;
+        int maxDrift = 0;
+        List<Integer> sample = new ArrayList<>();
+        for (int fromId = 1; fromId <= maxId; fromId += chunkSize) {
+            int toId = (int) Math.min((long) fromId + chunkSize - 1, maxId);
+            LikesCountScan scan = filmStorage.findLikesCountDrift(fromId, toId);
+            List<LikesCountDrift> drifts = scan.getDrifts();
+            chunks++;
+            filmsChecked += scan.getFilmsChecked();
+            filmsDrifted += drifts.size();
+            for (LikesCountDrift drift : drifts) {
+                int delta = Math.abs(drift.getDelta());
+                totalDrift += delta;
+                maxDrift = Math.max(maxDrift, delta);
+                if (sample.size() < SAMPLE_SIZE) {
+                    sample.add(drift.getFilmId());
+                }
+            }
+            if (!dryRun && !drifts.isEmpty()) {
+                List<LikesCountDrift> fixed = filmStorage.fixLikesCounts(drifts);
+                filmsFixed += fixed.size();
+                filmService.applyLikesCountCorrections(fixed);
+            }
+        }
+        LikesReconciliationReport report = LikesReconciliationReport.builder()
+                .startedAt(startedAt)
+                .finishedAt(Instant.now())
+                .dryRun(dryRun)
+                .chunks(chunks)
+                .filmsChecked(filmsChecked)
+                .filmsDrifted(filmsDrifted)
+                .filmsFixed(filmsFixed)
+                .totalDrift(totalDrift)
+                .maxDrift(maxDrift)
+                .driftedFilmIds(sample)
+                .build();
+        lastReport = report;
+        if (filmsDrifted > 0) {
+            log.warn("Сверка счетчиков лайков: расхождения у {} фильмов, суммарно {}, исправлено {}",
+                     filmsDrifted, totalDrift, filmsFixed);
+        } else {
+            log.info("Сверка счетчиков лайков: расхождений нет, диапазонов {}", chunks);
+        }
+        return report;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сверить счетчики лайков: {}", e.getMessage());
+        }
+    }
+}
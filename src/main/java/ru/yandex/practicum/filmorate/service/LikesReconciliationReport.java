@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Итог одного прохода сверки FILMS.LIKES_COUNT с LIKES.
+ */
+@Data
+@Builder
+public class LikesReconciliationReport {
+    private final Instant startedAt;
+    private final Instant finishedAt;
+    private final boolean dryRun;
+    private final int chunks;
+    private final int filmsChecked;
+    private final int filmsDrifted;
+    private final int filmsFixed;
+    /**
+     * Сумма модулей расхождений по всем фильмам.
+     */
+    private final long totalDrift;
+    private final int maxDrift;
+    /**
+     * Первые фильмы с расхождением, не более {@link LikesReconciler#SAMPLE_SIZE}.
+     */
+    private final List<Integer> driftedFilmIds;
+}
@@ -0,0 +1,59 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.IdentifiedModelObject;
+import ru.yandex.practicum.filmorate.model.Page;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Непрозрачный курсор постраничной выборки. Хранит идентификатор последнего выданного объекта.
+ */
+public final class PageCursor {
+    public static final int MAX_LIMIT = 1000;
+    private static final String PREFIX = "id:";
+
+    private PageCursor() {
+    }
+
+    public static String encode(int lastId) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString((PREFIX + lastId).getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static int decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return 0;
+        }
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (value.startsWith(PREFIX)) {
+                return Integer.parseInt(value.substring(PREFIX.length()));
+            }
+        } catch (IllegalArgumentException ignored) {
+            // обработка ниже
+        }
+        throw new IllegalArgumentException("Некорректный курсор страницы: " + cursor);
+    }
+
+    public static void checkLimit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_LIMIT + ", получено " + limit);
+        }
+    }
+
+    /**
+     * Собирает страницу из выборки размером до {@code limit + 1}: лишняя запись означает, что есть следующая страница.
+     */
+    public static <T extends IdentifiedModelObject> Page<T> toPage(List<T> rows, int limit) {
+        if (rows.size() <= limit) {
+            return Page.<T>builder().items(rows).build();
+        }
+        List<T> items = rows.subList(0, limit);
+        return Page.<T>builder()
+                .items(items)
+                .nextCursor(encode(items.get(limit - 1).getId()))
+                .build();
+    }
+}
@@ -0,0 +1,211 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import javax.annotation.PreDestroy;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Рассылка популярных фильмов подписчикам GET /films/popular/stream.
+ * Подписчики с одинаковым {@code count} получают один и тот же уже сериализованный список. После изменения лайков
+ * список пересчитывается по рейтингу в памяти и рассылается, только если изменился порядок фильмов в нем
+ * или сами фильмы, например, название.
+ * Изменения лайков копятся: рассылка идет не чаще раза в {@code min-interval-ms}.
+ * Подписки и рассылка обслуживаются одним потоком, поэтому каналы не требуют синхронизации.
+ * Этот поток только кладет список в очередь подписчика размером {@code subscriber-queue-size}, отправляют
+ * {@code send-threads} потоков; подписчик, очередь которого переполнилась, отключается.
+ */
+@Slf4j
+@Service
+@Profile("!reactive")
+public class PopularStreamService {
+    private static final String EVENT_NAME = "popular";
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final long minIntervalMs;
+    private final long emitterTimeoutMs;
+    private final int subscriberQueueSize;
+    private final ScheduledExecutorService executor;
+    private final ExecutorService sender;
+    private final Map<Integer, Channel> channels = new HashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private volatile long lastFlushMs;
+
+    @Autowired
+    public PopularStreamService(FilmService filmService,
+                                ObjectMapper objectMapper,
+                                @Value("${filmorate.films.popular.stream.min-interval-ms:1000}") long minIntervalMs,
+                                @Value("${filmorate.films.popular.stream.emitter-timeout-ms:1800000}") long emitterTimeoutMs,
+                                @Value("${filmorate.films.popular.stream.subscriber-queue-size:16}") int subscriberQueueSize,
+                                @Value("${filmorate.films.popular.stream.send-threads:4}") int sendThreads) {
+        if (subscriberQueueSize <= 0) {
+            throw new IllegalArgumentException("Размер очереди подписчика должен быть положительным, получено "
+                                                       + subscriberQueueSize);
+        }
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.minIntervalMs = minIntervalMs;
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        this.subscriberQueueSize = subscriberQueueSize;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "popular-stream");
+            thread.setDaemon(true);
+            return thread;
+        });
+        AtomicInteger threadNumber = new AtomicInteger();
+        sender = Executors.newFixedThreadPool(sendThreads, r -> {
+            Thread thread = new Thread(r, "popular-stream-send-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        filmService.addLikesListener(this::scheduleFlush);
+    }
+
+    /**
+     * Подписка на {@code count} самых популярных фильмов. Текущий список отправляется сразу.
+     */
+    public SseEmitter subscribe(int count) {
+        if (count <= 0 || count > FilmService.MAX_POPULAR_COUNT) {
+            throw new IllegalArgumentException(
+                    "Количество фильмов должно быть от 1 до " + FilmService.MAX_POPULAR_COUNT + ", получено " + count);
+        }
+        SseSubscriber subscriber = new SseSubscriber(new SseEmitter(emitterTimeoutMs), subscriberQueueSize, sender, closed -> {
+            if (!executor.isShutdown()) {
+                executor.execute(() -> unsubscribe(count, closed));
+            }
+        });
+        executor.execute(() -> {
+            if (subscriber.isClosed()) {
+                return;
+            }
+            Channel channel = channels.computeIfAbsent(count, this::openChannel);
+            channel.subscribers.add(subscriber);
+            send(channel, subscriber);
+        });
+        return subscriber.getEmitter();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        channels.values().forEach(channel -> new ArrayList<>(channel.subscribers).forEach(SseSubscriber::complete));
+        sender.shutdown();
+    }
+
+    /**
+     * Планирует рассылку на момент, когда с предыдущей пройдет {@code min-interval-ms}.
+     * Изменения, пришедшие до рассылки, попадут в нее же.
+     */
+    private void scheduleFlush() {
+        if (!executor.isShutdown() && flushScheduled.compareAndSet(false, true)) {
+            long delay = Math.max(0, lastFlushMs + minIntervalMs - System.currentTimeMillis());
+            executor.schedule(this::flush, delay, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void flush() {
+        flushScheduled.set(false);
+        lastFlushMs = System.currentTimeMillis();
+        for (Channel channel : new ArrayList<>(channels.values())) {
+            try {
+                if (refresh(channel)) {
+                    new ArrayList<>(channel.subscribers).forEach(subscriber -> send(channel, subscriber));
+                }
+            } catch (RuntimeException e) {
+                log.warn("Не удалось разослать {} популярных фильмов: {}", channel.count, e.getMessage());
+            }
+        }
+    }
+
+    private Channel openChannel(int count) {
+        Channel channel = new Channel(count);
+        refresh(channel);
+        return channel;
+    }
+
+    /**
+     * Пересчитывает список канала.
+     *
+     * @return true, если изменился порядок фильмов или сами фильмы
+     */
+    private boolean refresh(Channel channel) {
+        List<Film> films = filmService.getTopPopular(channel.count);
+        if (sameExceptLikes(channel.films, films)) {
+            return false;
+        }
+        try {
+            channel.payload = objectMapper.writeValueAsString(films);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+        channel.films = films;
+        return true;
+    }
+
+    /**
+     * Совпадают ли списки без учета количества лайков: при том же порядке оно не повод для новой рассылки.
+     */
+    private static boolean sameExceptLikes(List<Film> previous, List<Film> current) {
+        if (previous == null || previous.size() != current.size()) {
+            return false;
+        }
+        for (int i = 0; i < current.size(); i++) {
+            Film before = previous.get(i);
+            Film after = current.get(i);
+            if (!before.getId().equals(after.getId())
+                    || !Objects.equals(before.getName(), after.getName())
+                    || !Objects.equals(before.getDescription(), after.getDescription())
+                    || !Objects.equals(before.getReleaseDate(), after.getReleaseDate())
+                    || before.getDuration() != after.getDuration()
+                    || !Objects.equals(before.getMpa(), after.getMpa())
+                    || !before.getGenres().equals(after.getGenres())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void send(Channel channel, SseSubscriber subscriber) {
+        if (!subscriber.offer(SseEmitter.event().name(EVENT_NAME).data(channel.payload, MediaType.APPLICATION_JSON))) {
+            unsubscribe(channel.count, subscriber);
+        }
+    }
+
+    private void unsubscribe(int count, SseSubscriber subscriber) {
+        Channel channel = channels.get(count);
+        if (channel != null && channel.subscribers.remove(subscriber) && channel.subscribers.isEmpty()) {
+            channels.remove(count);
+        }
+    }
+
+    private static class Channel {
+        private final int count;
+        private final List<SseSubscriber> subscribers = new ArrayList<>();
+        private List<Film> films;
+        private String payload;
+
+        private Channel(int count) {
+            this.count = count;
+        }
+    }
+}
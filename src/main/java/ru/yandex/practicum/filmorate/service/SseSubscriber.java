@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+/**
+ * Подписчик SSE с собственной ограниченной очередью событий.
+ * Поток рассылки только кладет события в очередь, а отправляет их пул {@code sender}, не больше одной задачи
+ * на подписчика, поэтому медленный клиент не задерживает остальных. Подписчик, у которого очередь
+ * переполнилась, отстал и отключается.
+ */
+@Slf4j
+class SseSubscriber {
+    private final SseEmitter emitter;
+    private final BlockingQueue<SseEmitter.SseEventBuilder> queue;
+    private final Executor sender;
+    private final Consumer<SseSubscriber> onClose;
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+
+    SseSubscriber(SseEmitter emitter, int queueSize, Executor sender, Consumer<SseSubscriber> onClose) {
+        this.emitter = emitter;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.sender = sender;
+        this.onClose = onClose;
+        emitter.onCompletion(this::closed);
+        emitter.onTimeout(this::closed);
+        emitter.onError(e -> closed());
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    boolean isClosed() {
+        return closed.get();
+    }
+
+    /**
+     * Ставит событие в очередь на отправку.
+     *
+     * @return false, если подписчик уже отключен или отстал и отключается сейчас
+     */
+    boolean offer(SseEmitter.SseEventBuilder event) {
+        if (closed.get()) {
+            return false;
+        }
+        if (!queue.offer(event)) {
+            log.debug("Подписчик отстал на {} событий и отключается", queue.size());
+            close(new IllegalStateException("Очередь событий подписчика переполнена"));
+            return false;
+        }
+        scheduleDrain();
+        return true;
+    }
+
+    void complete() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.accept(this);
+            emitter.complete();
+        }
+    }
+
+    private void close(Throwable cause) {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.accept(this);
+            emitter.completeWithError(cause);
+        }
+    }
+
+    private void closed() {
+        if (closed.compareAndSet(false, true)) {
+            queue.clear();
+            onClose.accept(this);
+        }
+    }
+
+    private void scheduleDrain() {
+        if (draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                draining.set(false);
+                close(e);
+            }
+        }
+    }
+
+    private void drain() {
+        while (!closed.get()) {
+            SseEmitter.SseEventBuilder event = queue.poll();
+            if (event == null) {
+                draining.set(false);
+                // событие могло прийти после poll, но до сброса флага
+                if (queue.isEmpty() || !draining.compareAndSet(false, true)) {
+                    return;
+                }
+                continue;
+            }
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Подписчик отключился: {}", e.getMessage());
+                close(e);
+            }
+        }
+        draining.set(false);
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import java.util.Arrays;
+import java.util.stream.Collectors;
+
+/**
+ * Период, за который считаются лайки в выборке набирающих популярность фильмов.
+ */
+public enum TrendingWindow {
+    DAY("24h", 24),
+    WEEK("7d", 7 * 24);
+
+    private final String name;
+    private final int hours;
+
+    TrendingWindow(String name, int hours) {
+        this.name = name;
+        this.hours = hours;
+    }
+
+    public int getHours() {
+        return hours;
+    }
+
+    public static TrendingWindow parse(String name) {
+        return Arrays.stream(values())
+                .filter(window -> window.name.equals(name))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Период должен быть одним из " +
+                        Arrays.stream(values()).map(window -> window.name).collect(Collectors.joining(", ")) +
+                        ", получено " + name));
+    }
+}
@@ -1,41 +1,78 @@
 package ru.yandex.practicum.filmorate.service;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MultiGet;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.Page;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.util.List;
 
 @Service
 public class UserService {
+    public static final int MAX_SUGGESTIONS = 100;
     private final UserStorage storage;
+    private final FilmStorage filmStorage;
+    private final CollectionVersion collectionVersion = new CollectionVersion();
 
     @Autowired
-    public UserService(@Qualifier("userDbStorage") UserStorage storage) {
+    public UserService(UserStorage storage,
+                       FilmStorage filmStorage) {
         this.storage = storage;
+        this.filmStorage = filmStorage;
     }
 
     public User create(User user) {
-        return storage.create(user);
+        user = storage.create(user);
+        collectionVersion.increment();
+        return user;
     }
 
     public User update(User user) {
-        return storage.update(user)
+        User updated = storage.update(user)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден пользователь для обновления с id = " + user.getId()));
+        collectionVersion.increment();
+        return updated;
     }
 
     public List<User> getAll() {
         return storage.getAll();
     }
 
+    public Page<User> getPage(String after, int limit) {
+        PageCursor.checkLimit(limit);
+        return PageCursor.toPage(storage.getPage(PageCursor.decode(after), limit + 1), limit);
+    }
+
     public User getById(int id) {
         return storage.getById(id)
                 .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден пользователь с id = " + id));
     }
 
+    /**
+     * Пользователи по списку идентификаторов через запятую, в порядке списка.
+     */
+    public MultiGet<User> getByIds(String ids) {
+        int[] parsed = IdList.parse(ids);
+        return IdList.toMultiGet(parsed, storage.getByIds(parsed));
+    }
+
+    public long getVersion(int id) {
+        return storage.getVersion(id)
+                .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден пользователь с id = " + id));
+    }
+
+    /**
+     * Версия списка пользователей. Меняется при добавлении и изменении пользователей.
+     */
+    public String getCollectionVersion() {
+        return collectionVersion.get();
+    }
+
     public void addFriend(int id, int friendId) {
         if (id == friendId) {
             throw new IllegalArgumentException(
@@ -66,4 +103,23 @@ public class UserService {
         getById(otherId);
         return storage.getCommonFriends(id, otherId);
     }
+
+    public List<User> getFriendSuggestions(int id, int limit) {
+        checkSuggestionsLimit(limit);
+        getById(id);
+        return storage.getFriendSuggestions(id, limit);
+    }
+
+    public List<Film> getRecommendations(int id, int limit) {
+        checkSuggestionsLimit(limit);
+        getById(id);
+        return filmStorage.getRecommendations(id, limit);
+    }
+
+    private static void checkSuggestionsLimit(int limit) {
+        if (limit <= 0 || limit > MAX_SUGGESTIONS) {
+            throw new IllegalArgumentException(
+                    "Количество рекомендаций должно быть от 1 до " + MAX_SUGGESTIONS + ", получено " + limit);
+        }
+    }
 }
@@ -0,0 +1,85 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IdentifiedModelObject;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+
+import javax.annotation.PostConstruct;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Кэш справочников жанров и рейтингов MPA.
+ * Загружается целиком при старте приложения и перечитывается из БД по запросу {@link #reload()}.
+ * Выдает общие для всех экземпляры {@link Genre} и {@link MpaRating}, изменять их нельзя.
+ */
+@Slf4j
+@Component
+public class DictionaryCache implements Reloadable {
+    private final DictionaryDbStorage dictionaryStorage;
+    private final AtomicLong version = new AtomicLong();
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), Map.of());
+
+    @Autowired
+    public DictionaryCache(DictionaryDbStorage dictionaryStorage) {
+        this.dictionaryStorage = dictionaryStorage;
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        snapshot = new Snapshot(toMap(dictionaryStorage.getAllGenres()), toMap(dictionaryStorage.getAllMpa()));
+        version.incrementAndGet();
+        log.info("Загружены справочники: жанров {}, рейтингов MPA {}",
+                 snapshot.genres.size(), snapshot.mpaRatings.size());
+    }
+
+    /**
+     * Номер загрузки справочников, увеличивается после каждого {@link #reload()}.
+     * Позволяет производным кэшам понять, что данные устарели.
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    public List<Genre> getAllGenres() {
+        return List.copyOf(snapshot.genres.values());
+    }
+
+    public Optional<Genre> getGenreById(Integer id) {
+        return Optional.ofNullable(snapshot.genres.get(id));
+    }
+
+    public List<MpaRating> getAllMpa() {
+        return List.copyOf(snapshot.mpaRatings.values());
+    }
+
+    public Optional<MpaRating> getMpaById(Integer id) {
+        return Optional.ofNullable(snapshot.mpaRatings.get(id));
+    }
+
+    private static <T extends IdentifiedModelObject> Map<Integer, T> toMap(List<T> items) {
+        Map<Integer, T> map = new LinkedHashMap<>();
+        for (T item : items) {
+            map.put(item.getId(), item);
+        }
+        return Collections.unmodifiableMap(map);
+    }
+
+    private static class Snapshot {
+        private final Map<Integer, Genre> genres;
+        private final Map<Integer, MpaRating> mpaRatings;
+
+        private Snapshot(Map<Integer, Genre> genres, Map<Integer, MpaRating> mpaRatings) {
+            this.genres = genres;
+            this.mpaRatings = mpaRatings;
+        }
+    }
+}
@@ -21,7 +21,7 @@ public class DictionaryDbStorage {
     }
 
     public List<Genre> getAllGenres() {
-        String sql = "select ID, NAME from GENRES";
+        String sql = "SELECT ID, NAME FROM GENRES ORDER BY ID";
         return jdbcTemplate.query(sql, this::mapRowToGenre);
     }
 
@@ -57,7 +57,7 @@ public class DictionaryDbStorage {
     }
 
     public List<MpaRating> getAllMpa() {
-        String sql = "select ID, NAME from MPA";
+        String sql = "SELECT ID, NAME FROM MPA ORDER BY ID";
         return jdbcTemplate.query(sql, this::mapRowToMpa);
     }
 
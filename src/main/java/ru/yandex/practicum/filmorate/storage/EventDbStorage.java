@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.yandex.practicum.filmorate.model.DomainEvent;
+import ru.yandex.practicum.filmorate.model.EventType;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+/**
+ * Таблица OUTBOX с изменениями фильмов и пользователей.
+ * Хранилища пишут в нее тем же JdbcTemplate, что и сами изменения, и в той же транзакции.
+ * После фиксации транзакции вызываются подписчики {@link #addListener}, чтобы читатели не ждали очередного опроса.
+ * С шардированием изменения фиксируются в разных БД без общего порядка, поэтому таблица не ведется.
+ */
+@Repository
+public class EventDbStorage {
+    private static final String INSERT_SQL = "INSERT INTO OUTBOX(TYPE, ENTITY_ID, RELATED_ID) VALUES(?, ?, ?)";
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    @Autowired
+    public EventDbStorage(JdbcTemplate jdbcTemplate, @Value("${filmorate.sharding.enabled:false}") boolean sharding) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = !sharding;
+    }
+
+    public void append(JdbcTemplate target, EventType type, int entityId, Integer relatedId) {
+        if (!enabled) {
+            return;
+        }
+        target.update(INSERT_SQL, type.name(), entityId, relatedId);
+        notifyAfterCommit();
+    }
+
+    public void appendAll(JdbcTemplate target, EventType type, List<Integer> entityIds) {
+        if (!enabled) {
+            return;
+        }
+        target.batchUpdate(INSERT_SQL, entityIds.stream()
+                .map(id -> new Object[]{type.name(), id, null})
+                .collect(Collectors.toList()));
+        notifyAfterCommit();
+    }
+
+    /**
+     * Не более {@code limit} записей с номером больше {@code offset} по возрастанию номера.
+     */
+    public List<DomainEvent> getAfter(long offset, int limit) {
+        String sql = "SELECT ID, TYPE, ENTITY_ID, RELATED_ID, CREATED_AT FROM OUTBOX WHERE ID > ? ORDER BY ID LIMIT ?";
+        return jdbcTemplate.query(sql, this::mapRowToEvent, offset, limit);
+    }
+
+    /**
+     * Удаляет записи с номером не больше {@code maxOffset}, созданные раньше {@code createdBefore}.
+     *
+     * @return количество удаленных записей
+     */
+    public int deleteOlderThan(long maxOffset, Instant createdBefore) {
+        String sql = "DELETE FROM OUTBOX WHERE ID <= ? AND CREATED_AT < ?";
+        return jdbcTemplate.update(sql, maxOffset, Timestamp.from(createdBefore));
+    }
+
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    private void notifyAfterCommit() {
+        AfterCommit.run(() -> listeners.forEach(Runnable::run));
+    }
+
+    private DomainEvent mapRowToEvent(ResultSet rs, int rowNum) throws SQLException {
+        return DomainEvent.builder()
+                .offset(rs.getLong("ID"))
+                .type(EventType.valueOf(rs.getString("TYPE")))
+                .entityId(rs.getInt("ENTITY_ID"))
+                .relatedId((Integer) rs.getObject("RELATED_ID"))
+                .createdAt(rs.getTimestamp("CREATED_AT").toInstant())
+                .build();
+    }
+}
@@ -0,0 +1,8 @@
+package ru.yandex.practicum.filmorate.storage;
+
+/**
+ * Компонент, держащий в памяти производные от БД данные, которые можно перестроить заново.
+ */
+public interface Reloadable {
+    void reload();
+}
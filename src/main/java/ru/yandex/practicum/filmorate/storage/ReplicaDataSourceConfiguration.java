@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * При {@code filmorate.datasource.replicas.enabled=true} заменяет DataSource из автоконфигурации на
+ * {@link ReplicaRoutingDataSource}: основная БД берется из {@code spring.datasource.*}, реплики - из
+ * {@code filmorate.datasource.replicas.urls} с теми же драйвером и учетными данными.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.datasource.replicas.enabled", havingValue = "true")
+public class ReplicaDataSourceConfiguration {
+    @Bean
+    public ReplicaRoutingDataSource dataSource(
+            DataSourceProperties properties,
+            @Value("${filmorate.datasource.replicas.urls}") List<String> urls,
+            @Value("${filmorate.datasource.replicas.health-check-interval-ms:1000}") long healthCheckIntervalMs,
+            @Value("${filmorate.datasource.replicas.validation-timeout-seconds:1}") int validationTimeoutSeconds) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("Чтение с реплик включено, но filmorate.datasource.replicas.urls не задан");
+        }
+        DataSource primary = properties.initializeDataSourceBuilder().build();
+        List<DataSource> replicas = urls.stream()
+                .map(url -> DataSourceBuilder.create()
+                        .driverClassName(properties.determineDriverClassName())
+                        .url(url)
+                        .username(properties.determineUsername())
+                        .password(properties.determinePassword())
+                        .build())
+                .collect(Collectors.toList());
+        return new ReplicaRoutingDataSource(primary, replicas, healthCheckIntervalMs, validationTimeoutSeconds);
+    }
+}
@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.function.Supplier;
+
+/**
+ * Контекст выбора БД в рамках одного HTTP-запроса для {@link ReplicaRoutingDataSource}.
+ * Задачи, выполняемые через {@link #read(Supplier)}, могут читать с реплики, пока в этом запросе не было записи.
+ * После первой записи все обращения запроса идут в основную БД, чтобы запрос видел собственные изменения.
+ * Запрос, пришедший вскоре после записи того же клиента, открывается закрепленным за основной БД
+ * (см. {@code RoutingContextFilter}): так клиент видит свои изменения и в следующих запросах, пока реплика отстает.
+ * Контекст привязывается к потоку только на время задачи, поэтому его можно передавать в пулы потоков.
+ */
+public final class RoutingContext {
+    private static final ThreadLocal<RoutingContext> CURRENT = new ThreadLocal<>();
+    private static final ThreadLocal<Boolean> READ_ONLY = new ThreadLocal<>();
+    private final boolean pinnedToPrimary;
+    private volatile boolean wrote;
+
+    private RoutingContext(boolean pinnedToPrimary) {
+        this.pinnedToPrimary = pinnedToPrimary;
+    }
+
+    /**
+     * Привязывает к текущему потоку новый контекст запроса. Парный вызов {@link #end()} обязателен.
+     *
+     * @param pinnedToPrimary читать только из основной БД
+     */
+    public static RoutingContext begin(boolean pinnedToPrimary) {
+        RoutingContext context = new RoutingContext(pinnedToPrimary);
+        CURRENT.set(context);
+        return context;
+    }
+
+    public static void end() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Контекст текущего запроса, а вне запроса (фоновые задачи, тесты) - новый контекст.
+     */
+    public static RoutingContext current() {
+        RoutingContext context = CURRENT.get();
+        return context != null ? context : new RoutingContext(false);
+    }
+
+    /**
+     * Можно ли текущему потоку читать с реплики.
+     */
+    static boolean isReplicaAllowed() {
+        RoutingContext context = CURRENT.get();
+        return context != null && !context.pinnedToPrimary && !context.wrote && Boolean.TRUE.equals(READ_ONLY.get());
+    }
+
+    public <T> T read(Supplier<T> task) {
+        return run(task, true);
+    }
+
+    public <T> T write(Supplier<T> task) {
+        wrote = true;
+        return run(task, false);
+    }
+
+    private <T> T run(Supplier<T> task, boolean readOnly) {
+        RoutingContext previousContext = CURRENT.get();
+        Boolean previousReadOnly = READ_ONLY.get();
+        CURRENT.set(this);
+        READ_ONLY.set(readOnly);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previousContext);
+            READ_ONLY.set(previousReadOnly);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import ru.yandex.practicum.filmorate.storage.film.ShardedFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.ShardedUserStorage;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * При {@code filmorate.sharding.enabled=true} хранит фильмы и пользователей в шардах из
+ * {@code filmorate.sharding.urls} с драйвером и учетными данными из {@code spring.datasource.*}.
+ * Схема шардов пересоздается при старте, как и схема основной БД. В основной БД остаются справочники.
+ */
+@Configuration
+@ConditionalOnProperty(name = "filmorate.sharding.enabled", havingValue = "true")
+public class ShardingConfiguration {
+    @Bean
+    public Shards shards(DataSourceProperties properties,
+                         @Value("${filmorate.sharding.urls}") List<String> urls,
+                         @Value("${filmorate.sharding.query-threads:8}") int queryThreads) {
+        if (urls.isEmpty()) {
+            throw new IllegalStateException("Шардирование включено, но filmorate.sharding.urls не задан");
+        }
+        List<DataSource> dataSources = urls.stream()
+                .map(url -> DataSourceBuilder.create()
+                        .driverClassName(properties.determineDriverClassName())
+                        .url(url)
+                        .username(properties.determineUsername())
+                        .password(properties.determinePassword())
+                        .build())
+                .collect(Collectors.toList());
+        Shards shards = new Shards(dataSources, queryThreads);
+        shards.initSchema();
+        return shards;
+    }
+
+    @Bean
+    @Primary
+    public ShardedFilmStorage shardedFilmStorage(Shards shards, DictionaryCache dictionaryCache,
+                                                 EventDbStorage eventStorage, ShardedUserStorage userStorage) {
+        return new ShardedFilmStorage(shards, dictionaryCache, eventStorage, userStorage);
+    }
+
+    @Bean
+    @Primary
+    public ShardedUserStorage shardedUserStorage(Shards shards, EventDbStorage eventStorage) {
+        return new ShardedUserStorage(shards, eventStorage);
+    }
+}
@@ -0,0 +1,194 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Набор БД, между которыми строки делятся по остатку от деления идентификатора: строка с id попадает
+ * в шард {@code (id - 1) mod N}. Фильмы вместе с их жанрами и лайками делятся по id фильма, пользователи
+ * вместе с их заявками в друзья - по id пользователя, отправившего заявку. Справочники есть в каждом шарде.
+ * Новые строки раздаются шардам по кругу, а идентификаторы каждый шард выдает сам с шагом N,
+ * поэтому id всегда указывает на шард, в котором хранится строка.
+ * У каждого шарда свой менеджер транзакций: хранилища шардов создаются без прокси Spring, их аннотации
+ * {@code @Transactional} не действуют, поэтому изменения выполняются через {@link #inTransaction}.
+ */
+@Slf4j
+public class Shards implements AutoCloseable {
+    private static final String[] SEQUENCE_TABLES = {"FILMS", "USERS"};
+    private final List<DataSource> dataSources;
+    private final List<JdbcTemplate> templates;
+    private final List<TransactionTemplate> transactions;
+    private final ExecutorService executor;
+    private final AtomicInteger next = new AtomicInteger();
+
+    public Shards(List<DataSource> dataSources, int queryThreads) {
+        this.dataSources = List.copyOf(dataSources);
+        this.templates = dataSources.stream().map(JdbcTemplate::new).collect(Collectors.toList());
+        this.transactions = dataSources.stream()
+                .map(dataSource -> new TransactionTemplate(new DataSourceTransactionManager(dataSource)))
+                .collect(Collectors.toList());
+        AtomicInteger threadNumber = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(queryThreads, r -> {
+            Thread thread = new Thread(r, "shard-query-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Включено шардирование: шардов {}, потоков для запросов {}", dataSources.size(), queryThreads);
+    }
+
+    public int size() {
+        return templates.size();
+    }
+
+    public int shardOf(int id) {
+        return Math.floorMod(id - 1, size());
+    }
+
+    /**
+     * Шард для новой строки.
+     */
+    public int nextShard() {
+        return Math.floorMod(next.getAndIncrement(), size());
+    }
+
+    public List<JdbcTemplate> getTemplates() {
+        return templates;
+    }
+
+    /**
+     * Выполняет изменение в транзакции шарда {@code shard}.
+     */
+    public <T> T inTransaction(int shard, Supplier<T> action) {
+        return transactions.get(shard).execute(status -> action.get());
+    }
+
+    public void inTransaction(int shard, Runnable action) {
+        transactions.get(shard).executeWithoutResult(status -> action.run());
+    }
+
+    /**
+     * Пересоздает схему во всех шардах скриптами shard_schema.sql и data.sql и настраивает выдачу идентификаторов.
+     * Новые строки снова раздаются начиная с первого шарда.
+     */
+    public void initSchema() {
+        ResourceDatabasePopulator populator = new ResourceDatabasePopulator(new ClassPathResource("shard_schema.sql"),
+                                                                            new ClassPathResource("data.sql"));
+        populator.setSqlScriptEncoding(StandardCharsets.UTF_8.name());
+        dataSources.forEach(populator::execute);
+        initSequences();
+        next.set(0);
+    }
+
+    /**
+     * Настраивает выдачу идентификаторов шардом: следующий id больше уже выданных и попадает в этот шард.
+     */
+    private void initSequences() {
+        for (int shard = 0; shard < size(); shard++) {
+            JdbcTemplate template = templates.get(shard);
+            for (String table : SEQUENCE_TABLES) {
+                Integer maxId = template.queryForObject("SELECT COALESCE(MAX(ID), 0) FROM " + table, Integer.class);
+                int start = maxId + 1 + Math.floorMod(shard - maxId, size());
+                template.execute("ALTER TABLE " + table + " ALTER COLUMN ID RESTART WITH " + start +
+                                         " SET INCREMENT BY " + size());
+            }
+        }
+    }
+
+    /**
+     * Выполняет запрос во всех шардах параллельно.
+     *
+     * @return результаты в порядке номеров шардов
+     */
+    public <T> List<T> scatter(IntFunction<T> query) {
+        List<Integer> all = new ArrayList<>(size());
+        for (int shard = 0; shard < size(); shard++) {
+            all.add(shard);
+        }
+        return scatter(all, query);
+    }
+
+    /**
+     * Выполняет запрос в перечисленных шардах параллельно. Если запрос упал хотя бы в одном шарде,
+     * пробрасывает его исключение.
+     */
+    public <T> List<T> scatter(List<Integer> shards, IntFunction<T> query) {
+        if (shards.size() == 1) {
+            return List.of(query.apply(shards.get(0)));
+        }
+        List<CompletableFuture<T>> futures = shards.stream()
+                .map(shard -> CompletableFuture.supplyAsync(() -> query.apply(shard), executor))
+                .collect(Collectors.toList());
+        try {
+            return futures.stream().map(CompletableFuture::join).collect(Collectors.toList());
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Сливает отсортированные по {@code order} частичные результаты шардов и оставляет первые {@code limit}.
+     * Стоимость - O(limit log N) для N шардов.
+     */
+    public static <T> List<T> mergeSorted(List<List<T>> parts, Comparator<? super T> order, int limit) {
+        PriorityQueue<Head<T>> heads = new PriorityQueue<>(Math.max(parts.size(), 1),
+                                                            (a, b) -> order.compare(a.value, b.value));
+        for (List<T> part : parts) {
+            Iterator<T> iterator = part.iterator();
+            if (iterator.hasNext()) {
+                heads.add(new Head<>(iterator.next(), iterator));
+            }
+        }
+        List<T> merged = new ArrayList<>();
+        while (merged.size() < limit && !heads.isEmpty()) {
+            Head<T> head = heads.poll();
+            merged.add(head.value);
+            if (head.rest.hasNext()) {
+                heads.add(new Head<>(head.rest.next(), head.rest));
+            }
+        }
+        return merged;
+    }
+
+    @Override
+    public void close() throws Exception {
+        executor.shutdownNow();
+        for (DataSource dataSource : dataSources) {
+            if (dataSource instanceof AutoCloseable) {
+                ((AutoCloseable) dataSource).close();
+            }
+        }
+    }
+
+    private static class Head<T> {
+        private final T value;
+        private final Iterator<T> rest;
+
+        private Head(T value, Iterator<T> rest) {
+            this.value = value;
+            this.rest = rest;
+        }
+    }
+}
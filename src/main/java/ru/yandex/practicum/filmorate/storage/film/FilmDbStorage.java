@@ -2,46 +2,75 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.IdentifiedModelObject;
 import ru.yandex.practicum.filmorate.model.MpaRating;
-import ru.yandex.practicum.filmorate.storage.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
 
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Timestamp;
 import java.sql.Types;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
-import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Repository
 public class FilmDbStorage implements FilmStorage {
+    private static final int STREAM_FETCH_SIZE = 500;
+    private static final int INSERT_BATCH_SIZE = 1000;
+    private static final String FK_LIKES_USER = "FK_LIKES_USER";
+    private static final String FK_LIKES_FILM = "FK_LIKES_FILM";
     private final JdbcTemplate jdbcTemplate;
-    private final DictionaryDbStorage dictionaryStorage;
+    private final DictionaryCache dictionaryCache;
+    private final LikesCounterBuffer likesCounterBuffer;
+    private final LikesIndex likesIndex;
+    private final FilmSearchIndex searchIndex;
+    private final EventDbStorage eventStorage;
 
     @Autowired
-    public FilmDbStorage(JdbcTemplate jdbcTemplate, DictionaryDbStorage dictionaryStorage) {
+    public FilmDbStorage(JdbcTemplate jdbcTemplate, DictionaryCache dictionaryCache,
+                         LikesCounterBuffer likesCounterBuffer, LikesIndex likesIndex, FilmSearchIndex searchIndex,
+                         EventDbStorage eventStorage) {
         this.jdbcTemplate = jdbcTemplate;
-        this.dictionaryStorage = dictionaryStorage;
+        this.dictionaryCache = dictionaryCache;
+        this.likesCounterBuffer = likesCounterBuffer;
+        this.likesIndex = likesIndex;
+        this.searchIndex = searchIndex;
+        this.eventStorage = eventStorage;
     }
 
     @Override
+    @Transactional
     public Film create(Film film) {
         if (film.getId() != null) {
             throw new NullPointerException("Поле id создаваемого фильма должно быть пустым");
@@ -62,16 +91,71 @@ public class FilmDbStorage implements FilmStorage {
 
         film.setId(keyHolder.getKeyAs(Integer.class));
         saveFilmGenres(film);
+        eventStorage.append(jdbcTemplate, EventType.FILM_CREATED, film.getId(), null);
+        resolveDictionaries(film);
+        AfterCommit.run(() -> searchIndex.put(film));
 
         return film;
     }
 
     @Override
+    @Transactional
+    public List<Film> createAll(List<Film> films) {
+        for (Film film : films) {
+            if (film.getId() != null) {
+                throw new NullPointerException("Поле id создаваемого фильма должно быть пустым");
+            }
+        }
+        String sql = "INSERT INTO FILMS(NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) VALUES(?, ?, ?, ?, ?);";
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement ps = connection.prepareStatement(sql, new String[]{"ID"})) {
+                for (int from = 0; from < films.size(); from += INSERT_BATCH_SIZE) {
+                    List<Film> chunk = films.subList(from, Math.min(from + INSERT_BATCH_SIZE, films.size()));
+                    for (Film film : chunk) {
+                        ps.setString(1, film.getName());
+                        ps.setString(2, film.getDescription());
+                        ps.setDate(3, Date.valueOf(film.getReleaseDate()));
+                        ps.setInt(4, film.getDuration());
+                        ps.setObject(5, Optional.ofNullable(film.getMpa()).map(MpaRating::getId).orElse(null), Types.INTEGER);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet keys = ps.getGeneratedKeys()) {
+                        for (Film film : chunk) {
+                            if (!keys.next()) {
+                                throw new IllegalStateException("БД вернула меньше идентификаторов, чем добавлено фильмов");
+                            }
+                            film.setId(keys.getInt(1));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
+
+        List<Object[]> links = new ArrayList<>();
+        for (Film film : films) {
+            for (Genre genre : film.getGenres()) {
+                links.add(new Object[]{genre.getId(), film.getId()});
+            }
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO GENRES_FILMS(GENRE_ID, FILM_ID) VALUES(?, ?);", links);
+        eventStorage.appendAll(jdbcTemplate, EventType.FILM_CREATED,
+                               films.stream().map(Film::getId).collect(Collectors.toList()));
+        films.forEach(this::resolveDictionaries);
+        AfterCommit.run(() -> films.forEach(searchIndex::put));
+
+        return films;
+    }
+
+    @Override
+    @Transactional
     public Optional<Film> update(Film film) {
         if (film.getId() == null) {
             throw new NullPointerException("Поле id обновляемого фильма не должно быть пустым");
         }
-        String sql = "UPDATE FILMS SET NAME=?, DESCRIPTION=?, RELEASE_DATE=?, DURATION=?, MPA_ID=?, LIKES_COUNT=? WHERE ID=?;";
+        String sql = "UPDATE FILMS SET NAME=?, DESCRIPTION=?, RELEASE_DATE=?, DURATION=?, MPA_ID=?, LIKES_COUNT=?, VERSION = VERSION + 1 WHERE ID=?;";
 
         int rowCount = jdbcTemplate.update(sql,
                                            film.getName(),
@@ -85,91 +169,341 @@ public class FilmDbStorage implements FilmStorage {
             return Optional.empty();
         } else {
             saveFilmGenres(film);
+            eventStorage.append(jdbcTemplate, EventType.FILM_UPDATED, film.getId(), null);
+            resolveDictionaries(film);
+            AfterCommit.run(() -> searchIndex.put(film));
             return Optional.of(film);
         }
     }
 
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT FROM FILMS";
+        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION FROM FILMS";
         List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm);
+        loadGenres(films);
+        return films;
+    }
 
-        sql = "SELECT gf.FILM_ID, g.* FROM GENRES g \n" +
-                "JOIN GENRES_FILMS gf ON g.ID = gf.GENRE_ID \n" +
-                "WHERE gf.FILM_ID IN (:ids);";
-        Set<Integer> ids = films.stream().map(IdentifiedModelObject::getId).collect(Collectors.toSet());
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION FROM FILMS " +
+                "WHERE ID > ? ORDER BY ID LIMIT ?";
+        List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, afterId, limit);
+        loadGenres(films);
+        return films;
+    }
 
-        NamedParameterJdbcTemplate namedParameterJdbcTemplate =
-                new NamedParameterJdbcTemplate(jdbcTemplate.getDataSource());
-        MapSqlParameterSource parameters = new MapSqlParameterSource();
-        parameters.addValue("ids", ids);
-
-        Map<Integer, List<Genre>> filmsGenres = namedParameterJdbcTemplate.query(
-                sql, parameters, rs -> {
-                    Map<Integer, List<Genre>> map = new HashMap<>();
-                    while (rs.next()) {
-                        Integer filmId = rs.getInt("FILM_ID");
-                        map.put(filmId, new ArrayList<>());
-                        Genre genre = Genre.builder().id(rs.getInt("ID")).name(rs.getString("NAME")).build();
-                        map.get(filmId).add(genre);
-                    }
-                    return map;
-                });
-
-        if (filmsGenres != null && !filmsGenres.isEmpty()) {
-            for (Film film : films) {
-                if (filmsGenres.containsKey(film.getId())) {
-                    for (Genre genre : filmsGenres.get(film.getId())) {
-                        film.addGenre(genre);
-                    }
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Film> consumer) {
+        String genresSql = "SELECT FILM_ID, GENRE_ID FROM GENRES_FILMS ORDER BY FILM_ID, GENRE_ID";
+        String filmsSql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION FROM FILMS ORDER BY ID";
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (PreparedStatement genresPs = connection.prepareStatement(genresSql)) {
+                genresPs.setFetchSize(STREAM_FETCH_SIZE);
+                try (ResultSet genresRs = genresPs.executeQuery()) {
+                    GenreCursor genreCursor = new GenreCursor(genresRs);
+                    jdbcTemplate.query(con -> {
+                        PreparedStatement ps = con.prepareStatement(filmsSql);
+                        ps.setFetchSize(STREAM_FETCH_SIZE);
+                        return ps;
+                    }, (RowCallbackHandler) rs -> {
+                        Film film = mapRowToFilm(rs, rs.getRow());
+                        genreCursor.fill(film);
+                        consumer.accept(film);
+                    });
                 }
             }
-        }
-        return films;
+            return null;
+        });
     }
 
     @Override
     public Optional<Film> getById(int id) {
-        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT FROM FILMS WHERE ID = ?";
+        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION FROM FILMS WHERE ID = ?";
 
         List<Film> films = jdbcTemplate.query(sql, this::mapRowToFilm, id);
         if (films.isEmpty()) {
             return Optional.empty();
         }
         Film film = films.get(0);
-        List<Genre> filmGenres = dictionaryStorage.getGenresByFilmId(film.getId());
-        for (Genre genre : filmGenres) {
-            film.addGenre(genre);
-        }
+        loadGenres(films);
         return Optional.of(film);
     }
 
     @Override
-    public void saveLike(int filmId, int userId) {
+    public Optional<Long> getVersion(int id) {
+        String sql = "SELECT VERSION FROM FILMS WHERE ID = ?";
+        return jdbcTemplate.queryForList(sql, Long.class, id).stream().findFirst();
+    }
+
+    /**
+     * Лайк ставится одним запросом: строка LIKES добавляется, только если фильм есть, а лайка еще нет,
+     * и только для добавленной строки выполняется вложенное обновление счетчика фильма.
+     * Нет пользователя - нарушение внешнего ключа. Запрос выполняется в транзакции:
+     * H2 не откатывает в режиме autocommit вставку из FINAL TABLE, упавшую на внешнем ключе.
+     */
+    @Override
+    @Transactional
+    public LikeChange saveLike(int filmId, int userId) {
         String sql =
-                "MERGE INTO LIKES(USER_ID, FILM_ID) KEY(USER_ID, FILM_ID) VALUES(?, ?);\n" +
-                "UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + 1 WHERE ID = ?;";
-        jdbcTemplate.update(sql, userId, filmId, filmId);
+                "SELECT L.CREATED_AT, " + likesCountColumn(1) + " AS LIKES_COUNT\n" +
+                "FROM FINAL TABLE (\n" +
+                "    INSERT INTO LIKES(USER_ID, FILM_ID)\n" +
+                "    SELECT ?, ID FROM FILMS\n" +
+                "    WHERE ID = ? AND NOT EXISTS (SELECT 1 FROM LIKES WHERE USER_ID = ? AND FILM_ID = ?)) L";
+        Optional<LikeChange> change;
+        try {
+            change = jdbcTemplate.query(sql, this::mapRowToLikeChange, likeParameters(filmId, userId, filmId, userId, filmId))
+                    .stream()
+                    .findFirst();
+        } catch (DuplicateKeyException e) {
+            // такой же лайк поставлен параллельно
+            change = Optional.empty();
+        } catch (DataIntegrityViolationException e) {
+            throw unknownLikeReference(e, filmId, userId);
+        }
+        if (change.isEmpty()) {
+            return getUnchangedLikes(filmId);
+        }
+        eventStorage.append(jdbcTemplate, EventType.LIKE_ADDED, filmId, userId);
+        AfterCommit.run(() -> likesIndex.add(userId, filmId));
+        return withPendingLikes(change.get(), filmId, 1);
     }
 
+    /**
+     * Лайк удаляется одним запросом, счетчик фильма уменьшается только для удаленной строки.
+     */
     @Override
-    public void deleteLike(int filmId, int userId) {
+    @Transactional
+    public LikeChange deleteLike(int filmId, int userId) {
         String sql =
-                "DELETE FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?;\n" +
-                "UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT - 1 WHERE ID = ?;";
-        jdbcTemplate.update(sql, filmId, userId, filmId);
+                "SELECT L.CREATED_AT, " + likesCountColumn(-1) + " AS LIKES_COUNT\n" +
+                "FROM OLD TABLE (DELETE FROM LIKES WHERE FILM_ID = ? AND USER_ID = ?) L";
+        Optional<LikeChange> change = jdbcTemplate.query(sql, this::mapRowToLikeChange, likeParameters(filmId, filmId, userId))
+                .stream()
+                .findFirst();
+        if (change.isEmpty()) {
+            return getUnchangedLikes(filmId);
+        }
+        eventStorage.append(jdbcTemplate, EventType.LIKE_REMOVED, filmId, userId);
+        AfterCommit.run(() -> likesIndex.remove(userId, filmId));
+        return withPendingLikes(change.get(), filmId, -1);
+    }
+
+    @Override
+    public void streamHourlyLikes(Instant since, Consumer<HourlyLikes> consumer) {
+        String sql =
+                "SELECT FILM_ID, DATE_TRUNC('HOUR', CREATED_AT) AS SLICE_START, COUNT(*) AS LIKES\n" +
+                "FROM LIKES\n" +
+                "WHERE CREATED_AT >= DATE_TRUNC('HOUR', CAST(? AS TIMESTAMP))\n" +
+                "GROUP BY FILM_ID, SLICE_START";
+        jdbcTemplate.query(con -> {
+            PreparedStatement ps = con.prepareStatement(sql);
+            ps.setFetchSize(STREAM_FETCH_SIZE);
+            ps.setTimestamp(1, Timestamp.from(since));
+            return ps;
+        }, (RowCallbackHandler) rs -> consumer.accept(new HourlyLikes(rs.getInt("FILM_ID"),
+                                                                      rs.getTimestamp("SLICE_START").toInstant(),
+                                                                      rs.getInt("LIKES"))));
     }
 
     @Override
     public List<Film> getTopPopular(Integer count) {
         String sql =
-                "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT\n" +
+                "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION\n" +
                 "FROM FILMS\n" +
                 "ORDER BY LIKES_COUNT DESC\n" +
                 "LIMIT ?\n";
         return jdbcTemplate.query(sql, this::mapRowToFilm, count);
     }
 
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        String sql = "SELECT ID, LIKES_COUNT FROM FILMS";
+        return jdbcTemplate.query(sql, rs -> {
+            Map<Integer, Integer> counts = new HashMap<>();
+            while (rs.next()) {
+                counts.put(rs.getInt("ID"), rs.getInt("LIKES_COUNT"));
+            }
+            return counts;
+        });
+    }
+
+    @Override
+    public int getMaxId() {
+        Integer maxId = jdbcTemplate.queryForObject("SELECT MAX(ID) FROM FILMS", Integer.class);
+        return maxId == null ? 0 : maxId;
+    }
+
+    /**
+     * Сравнивает счетчики с LIKES для фильмов с идентификаторами от {@code fromId} до {@code toId} включительно.
+     * С отложенной записью буфер сначала сбрасывается, а выборка и проверка буфера идут под блокировкой сброса.
+     * Фильмы с еще не записанным изменением пропускаются: их строка LIKES уже видна, а +1 ждет в буфере.
+     */
+    @Override
+    public LikesCountScan findLikesCountDrift(int fromId, int toId) {
+        if (!likesCounterBuffer.isEnabled()) {
+            return queryLikesCountDrift(fromId, toId);
+        }
+        likesCounterBuffer.flush();
+        return likesCounterBuffer.withoutFlush(() -> {
+            LikesCountScan scan = queryLikesCountDrift(fromId, toId);
+            return new LikesCountScan(scan.getFilmsChecked(), scan.getDrifts().stream()
+                    .filter(drift -> likesCounterBuffer.getPending(drift.getFilmId()) == 0)
+                    .collect(Collectors.toList()));
+        });
+    }
+
+    /**
+     * Выбирает счетчики всех фильмов диапазона, а не только расходящиеся, чтобы знать, сколько фильмов проверено.
+     * Диапазон ограничен размером пакета сверки, поэтому строк немного.
+     */
+    private LikesCountScan queryLikesCountDrift(int fromId, int toId) {
+        String sql =
+                "SELECT f.ID, f.LIKES_COUNT, COUNT(l.USER_ID) AS ACTUAL_COUNT\n" +
+                "FROM FILMS f\n" +
+                "LEFT JOIN LIKES l ON l.FILM_ID = f.ID\n" +
+                "WHERE f.ID BETWEEN ? AND ?\n" +
+                "GROUP BY f.ID, f.LIKES_COUNT\n" +
+                "ORDER BY f.ID";
+        List<LikesCountDrift> counts = jdbcTemplate.query(sql,
+                                                          (rs, rowNum) -> new LikesCountDrift(rs.getInt("ID"),
+                                                                                              rs.getInt("LIKES_COUNT"),
+                                                                                              rs.getInt("ACTUAL_COUNT")),
+                                                          fromId, toId);
+        return new LikesCountScan(counts.size(), counts.stream()
+                .filter(count -> count.getDelta() != 0)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * Сдвигает счетчики на расхождения одним пакетом. Счетчик не заменяется числом строк LIKES на момент исправления:
+     * лайки, поставленные после сверки, уже учтены в счетчике или ждут в буфере, и сдвиг их не теряет и не удваивает.
+     */
+    @Override
+    public List<LikesCountDrift> fixLikesCounts(List<LikesCountDrift> drifts) {
+        if (drifts.isEmpty()) {
+            return List.of();
+        }
+        String sql = "UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + ?, VERSION = VERSION + 1 WHERE ID = ?";
+        int[] counts = jdbcTemplate.batchUpdate(sql, drifts.stream()
+                .map(drift -> new Object[]{drift.getDelta(), drift.getFilmId()})
+                .collect(Collectors.toList()));
+        List<LikesCountDrift> fixed = new ArrayList<>();
+        for (int i = 0; i < drifts.size(); i++) {
+            if (counts[i] > 0) {
+                fixed.add(drifts.get(i));
+            }
+        }
+        return fixed;
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        return getByIds(likesIndex.recommend(userId, limit));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return getByIds(searchIndex.search(query, limit));
+    }
+
+    /**
+     * Загружает фильмы с жанрами двумя запросами и возвращает их в порядке переданных идентификаторов.
+     */
+    @Override
+    public List<Film> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        String sql = "SELECT ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION FROM FILMS WHERE ID IN (:ids)";
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate =
+                new NamedParameterJdbcTemplate(jdbcTemplate.getDataSource());
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("ids", Arrays.stream(ids).boxed().collect(Collectors.toList()));
+        List<Film> films = namedParameterJdbcTemplate.query(sql, parameters, this::mapRowToFilm);
+        loadGenres(films);
+
+        Map<Integer, Film> filmsById = films.stream()
+                .collect(Collectors.toMap(IdentifiedModelObject::getId, Function.identity()));
+        return Arrays.stream(ids).mapToObj(filmsById::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
+    /**
+     * Счетчик фильма в запросах лайков: вложенное обновление счетчика или, в режиме отложенной записи, NULL.
+     */
+    private String likesCountColumn(int delta) {
+        if (likesCounterBuffer.isEnabled()) {
+            return "NULL";
+        }
+        return "(SELECT LIKES_COUNT FROM FINAL TABLE (" +
+                "UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + " + delta + ", VERSION = VERSION + 1 WHERE ID = ?))";
+    }
+
+    /**
+     * Параметры запроса лайка, перед ними - id фильма для вложенного обновления счетчика, если оно есть.
+     */
+    private Object[] likeParameters(int filmId, Object... parameters) {
+        if (likesCounterBuffer.isEnabled()) {
+            return parameters;
+        }
+        Object[] all = new Object[parameters.length + 1];
+        all[0] = filmId;
+        System.arraycopy(parameters, 0, all, 1, parameters.length);
+        return all;
+    }
+
+    /**
+     * В режиме отложенной записи счетчик в строке фильма не изменен, изменение копится в буфере.
+     * В буфер оно попадает только после фиксации транзакции: при откате строки LIKES нет, и сброс
+     * не должен записывать изменение счетчика. Поэтому возвращаемый счетчик считается без буфера.
+     */
+    private LikeChange withPendingLikes(LikeChange change, int filmId, int delta) {
+        if (!likesCounterBuffer.isEnabled()) {
+            return change;
+        }
+        int likesCount = readLikesCount(filmId).orElseThrow() + delta;
+        AfterCommit.run(() -> likesCounterBuffer.add(filmId, delta));
+        return new LikeChange(true, likesCount, change.getLikedAt());
+    }
+
+    private LikeChange getUnchangedLikes(int filmId) {
+        return readLikesCount(filmId)
+                .map(likesCount -> new LikeChange(false, likesCount, null))
+                .orElseThrow(() -> new UnknownModelObjectException("В хранилище не найден фильм с id = " + filmId));
+    }
+
+    /**
+     * Счетчик лайков фильма вместе с еще не записанным изменением. Счетчик и буфер читаются под блокировкой сброса:
+     * сброс обнуляет буфер раньше, чем фиксирует счетчик, и без блокировки изменение могло бы не попасть в сумму.
+     */
+    private Optional<Integer> readLikesCount(int filmId) {
+        String sql = "SELECT LIKES_COUNT FROM FILMS WHERE ID = ?";
+        if (!likesCounterBuffer.isEnabled()) {
+            return jdbcTemplate.queryForList(sql, Integer.class, filmId).stream().findFirst();
+        }
+        return likesCounterBuffer.withoutFlush(() -> jdbcTemplate.queryForList(sql, Integer.class, filmId).stream()
+                .findFirst()
+                .map(likesCount -> likesCount + likesCounterBuffer.getPending(filmId)));
+    }
+
+    private LikeChange mapRowToLikeChange(ResultSet rs, int rowNum) throws SQLException {
+        return new LikeChange(true, rs.getInt("LIKES_COUNT"), rs.getTimestamp("CREATED_AT").toInstant());
+    }
+
+    private UnknownModelObjectException unknownLikeReference(DataIntegrityViolationException e, int filmId, int userId) {
+        String message = String.valueOf(e.getMessage());
+        if (message.contains(FK_LIKES_USER)) {
+            return new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId);
+        }
+        if (message.contains(FK_LIKES_FILM)) {
+            return new UnknownModelObjectException("В хранилище не найден фильм с id = " + filmId);
+        }
+        throw e;
+    }
+
     private Film mapRowToFilm(ResultSet rs, int rowNum) throws SQLException {
         return Film.builder()
                 .id(rs.getInt("ID"))
@@ -177,11 +511,66 @@ public class FilmDbStorage implements FilmStorage {
                 .description(rs.getString("DESCRIPTION"))
                 .releaseDate(rs.getDate("RELEASE_DATE").toLocalDate())
                 .duration(rs.getInt("DURATION"))
-                .mpa(dictionaryStorage.getMpaById(rs.getInt("MPA_ID")).orElse(null))
+                .mpa(dictionaryCache.getMpaById(rs.getInt("MPA_ID")).orElse(null))
                 .likesCount(rs.getInt("LIKES_COUNT"))
+                .version(rs.getLong("VERSION"))
                 .build();
     }
 
+    private void resolveDictionaries(Film film) {
+        if (film.getMpa() != null) {
+            dictionaryCache.getMpaById(film.getMpa().getId()).ifPresent(film::setMpa);
+        }
+        List<Genre> genres = film.getGenres().stream()
+                .map(genre -> dictionaryCache.getGenreById(genre.getId()).orElse(genre))
+                .collect(Collectors.toList());
+        film.getGenres().clear();
+        genres.forEach(film::addGenre);
+    }
+
+    private void loadGenres(List<Film> films) {
+        if (films.isEmpty()) {
+            return;
+        }
+        String sql = "SELECT FILM_ID, GENRE_ID FROM GENRES_FILMS WHERE FILM_ID IN (:ids) ORDER BY FILM_ID, GENRE_ID";
+        Map<Integer, Film> filmsById = films.stream()
+                .collect(Collectors.toMap(IdentifiedModelObject::getId, Function.identity()));
+
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate =
+                new NamedParameterJdbcTemplate(jdbcTemplate.getDataSource());
+        MapSqlParameterSource parameters = new MapSqlParameterSource();
+        parameters.addValue("ids", filmsById.keySet());
+
+        namedParameterJdbcTemplate.query(sql, parameters, rs -> {
+            Film film = filmsById.get(rs.getInt("FILM_ID"));
+            dictionaryCache.getGenreById(rs.getInt("GENRE_ID")).ifPresent(film::addGenre);
+        });
+    }
+
+    /**
+     * Курсор по связям фильмов с жанрами, упорядоченным по FILM_ID.
+     * Продвигается синхронно с курсором фильмов, упорядоченным по ID.
+     */
+    private class GenreCursor {
+        private final ResultSet rs;
+        private boolean hasRow;
+
+        private GenreCursor(ResultSet rs) throws SQLException {
+            this.rs = rs;
+            this.hasRow = rs.next();
+        }
+
+        private void fill(Film film) throws SQLException {
+            while (hasRow && rs.getInt("FILM_ID") < film.getId()) {
+                hasRow = rs.next();
+            }
+            while (hasRow && rs.getInt("FILM_ID") == film.getId()) {
+                dictionaryCache.getGenreById(rs.getInt("GENRE_ID")).ifPresent(film::addGenre);
+                hasRow = rs.next();
+            }
+        }
+    }
+
     private void saveFilmGenres(Film film) {
         String sql = "DELETE FROM GENRES_FILMS WHERE FILM_ID = ?;";
         jdbcTemplate.update(sql, film.getId());
@@ -0,0 +1,207 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+
+import javax.annotation.PostConstruct;
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Обратный индекс по названиям и описаниям фильмов.
+ * Термы - слова из букв и цифр в нижнем регистре, буква "ё" приравнивается к "е".
+ * Для каждого терма хранится отсортированный массив идентификаторов фильмов отдельно для названия и описания.
+ */
+@Slf4j
+@Component
+public class FilmSearchIndex implements Reloadable {
+    /**
+     * Во сколько раз совпадение в названии весит больше совпадения в описании.
+     */
+    private static final double NAME_WEIGHT = 3.0;
+    private static final int FETCH_SIZE = 500;
+    private final List<JdbcTemplate> sources;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Postings> nameIndex = new HashMap<>();
+    private final Map<String, Postings> descriptionIndex = new HashMap<>();
+    private final Map<Integer, Document> documents = new HashMap<>();
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate) {
+        this(List.of(jdbcTemplate));
+    }
+
+    /**
+     * Индекс по фильмам из нескольких шардов.
+     */
+    public FilmSearchIndex(List<JdbcTemplate> sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            nameIndex.clear();
+            descriptionIndex.clear();
+            documents.clear();
+            for (JdbcTemplate jdbcTemplate : sources) {
+                jdbcTemplate.query(con -> {
+                    PreparedStatement ps = con.prepareStatement("SELECT ID, NAME, DESCRIPTION FROM FILMS ORDER BY ID");
+                    ps.setFetchSize(FETCH_SIZE);
+                    return ps;
+                }, (RowCallbackHandler) rs -> putUnlocked(rs.getInt("ID"), rs.getString("NAME"), rs.getString("DESCRIPTION")));
+            }
+            log.info("Построен поисковый индекс: фильмов {}, термов {}", documents.size(),
+                     nameIndex.size() + descriptionIndex.size());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void put(Film film) {
+        lock.writeLock().lock();
+        try {
+            putUnlocked(film.getId(), film.getName(), film.getDescription());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Идентификаторы фильмов, содержащих хотя бы один терм запроса, по убыванию релевантности.
+     * Вес терма - обратная частота документов (idf), совпадения в названии умножаются на {@link #NAME_WEIGHT}.
+     */
+    public int[] search(String query, int limit) {
+        Set<String> terms = tokenize(query);
+        lock.readLock().lock();
+        try {
+            int total = documents.size();
+            Map<Integer, Double> scores = new HashMap<>();
+            for (String term : terms) {
+                addScores(scores, nameIndex.get(term), total, NAME_WEIGHT);
+                addScores(scores, descriptionIndex.get(term), total, 1.0);
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<Integer, Double>comparingByValue(Comparator.reverseOrder())
+                                    .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .mapToInt(Map.Entry::getKey)
+                    .toArray();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (text == null) {
+            return terms;
+        }
+        StringBuilder term = new StringBuilder();
+        for (int i = 0; i <= text.length(); i++) {
+            char c = i < text.length() ? text.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                term.append(c);
+            } else if (term.length() > 0) {
+                terms.add(term.toString().toLowerCase(Locale.ROOT).replace('ё', 'е'));
+                term.setLength(0);
+            }
+        }
+        return terms;
+    }
+
+    private static void addScores(Map<Integer, Double> scores, Postings postings, int total, double weight) {
+        if (postings == null) {
+            return;
+        }
+        double score = weight * Math.log(1 + (double) total / postings.size);
+        for (int i = 0; i < postings.size; i++) {
+            scores.merge(postings.ids[i], score, Double::sum);
+        }
+    }
+
+    private void putUnlocked(int filmId, String name, String description) {
+        Document old = documents.get(filmId);
+        if (old != null) {
+            removeAll(nameIndex, old.nameTerms, filmId);
+            removeAll(descriptionIndex, old.descriptionTerms, filmId);
+        }
+        Document document = new Document(tokenize(name), tokenize(description));
+        for (String term : document.nameTerms) {
+            nameIndex.computeIfAbsent(term, t -> new Postings()).add(filmId);
+        }
+        for (String term : document.descriptionTerms) {
+            descriptionIndex.computeIfAbsent(term, t -> new Postings()).add(filmId);
+        }
+        documents.put(filmId, document);
+    }
+
+    private static void removeAll(Map<String, Postings> index, List<String> terms, int filmId) {
+        for (String term : terms) {
+            Postings postings = index.get(term);
+            if (postings != null && postings.remove(filmId) && postings.size == 0) {
+                index.remove(term);
+            }
+        }
+    }
+
+    private static class Document {
+        private final List<String> nameTerms;
+        private final List<String> descriptionTerms;
+
+        private Document(Set<String> nameTerms, Set<String> descriptionTerms) {
+            this.nameTerms = new ArrayList<>(nameTerms);
+            this.descriptionTerms = new ArrayList<>(descriptionTerms);
+        }
+    }
+
+    /**
+     * Отсортированный список идентификаторов фильмов на примитивном массиве.
+     * Новые фильмы получают возрастающие id, поэтому добавление обычно сводится к записи в конец.
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        private void add(int id) {
+            int index = size == 0 || ids[size - 1] < id ? -(size + 1) : Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -(index + 1);
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        private boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
@@ -2,21 +2,73 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import ru.yandex.practicum.filmorate.model.Film;
 
+import java.time.Instant;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     Film create(Film film);
 
+    List<Film> createAll(List<Film> films);
+
     Optional<Film> update(Film film);
 
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void streamAll(Consumer<Film> consumer);
+
     Optional<Film> getById(int id);
 
-    void saveLike(int filmId, int userId);
+    /**
+     * Фильмы с жанрами в порядке переданных идентификаторов, ненайденные пропускаются.
+     */
+    List<Film> getByIds(int[] ids);
+
+    Optional<Long> getVersion(int id);
+
+    /**
+     * Ставит лайк, если его еще не было, и обновляет счетчик лайков фильма одной атомарной операцией.
+     *
+     * @throws ru.yandex.practicum.filmorate.exception.UnknownModelObjectException если нет фильма или пользователя
+     */
+    LikeChange saveLike(int filmId, int userId);
+
+    /**
+     * Удаляет лайк, если он был, и обновляет счетчик лайков фильма одной атомарной операцией.
+     * Пользователь не проверяется.
+     *
+     * @throws ru.yandex.practicum.filmorate.exception.UnknownModelObjectException если нет фильма
+     */
+    LikeChange deleteLike(int filmId, int userId);
 
-    void deleteLike(int filmId, int userId);
+    /**
+     * Передает количество лайков по фильмам и часам, начиная с часа, в который попадает {@code since}.
+     */
+    void streamHourlyLikes(Instant since, Consumer<HourlyLikes> consumer);
 
     List<Film> getTopPopular(Integer count);
+
+    Map<Integer, Integer> getLikesCounts();
+
+    int getMaxId();
+
+    /**
+     * Сверяет счетчики лайков фильмов с идентификаторами от {@code fromId} до {@code toId} включительно.
+     */
+    LikesCountScan findLikesCountDrift(int fromId, int toId);
+
+    /**
+     * Сдвигает счетчики на найденные расхождения.
+     *
+     * @return исправления, которые действительно записаны
+     */
+    List<LikesCountDrift> fixLikesCounts(List<LikesCountDrift> drifts);
+
+    List<Film> getRecommendations(int userId, int limit);
+
+    List<Film> search(String query, int limit);
 }
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Количество лайков фильма, поставленных в течение одного часа.
+ */
+@Value
+public class HourlyLikes {
+    int filmId;
+    Instant hour;
+    int count;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+
+import java.time.Instant;
+
+/**
+ * Результат постановки или удаления лайка.
+ * {@code likesCount} - количество лайков фильма после операции, даже если она ничего не изменила.
+ * {@code likedAt} - время постановки добавленного или удаленного лайка, пустое, если лайк уже был или его не было.
+ */
+@Value
+public class LikeChange {
+    boolean changed;
+    int likesCount;
+    Instant likedAt;
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+
+/**
+ * Расхождение FILMS.LIKES_COUNT с фактическим числом строк LIKES у фильма.
+ */
+@Value
+public class LikesCountDrift {
+    int filmId;
+    int storedCount;
+    int actualCount;
+
+    public int getDelta() {
+        return actualCount - storedCount;
+    }
+}
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.Value;
+
+import java.util.List;
+
+/**
+ * Результат сверки счетчиков лайков по диапазону идентификаторов: сколько фильмов проверено
+ * и у каких из них счетчик расходится с LIKES.
+ */
+@Value
+public class LikesCountScan {
+    int filmsChecked;
+    List<LikesCountDrift> drifts;
+}
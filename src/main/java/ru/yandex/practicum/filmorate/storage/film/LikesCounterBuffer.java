@@ -0,0 +1,163 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Отложенная запись счетчиков FILMS.LIKES_COUNT.
+ * Во включенном режиме изменения счетчиков копятся в памяти и сбрасываются в БД одним пакетом
+ * раз в {@code flush-interval-ms} миллисекунд или после {@code max-pending-events} изменений.
+ * Сами строки LIKES пишутся сразу, поэтому счетчики всегда можно пересчитать.
+ */
+@Slf4j
+@Component
+public class LikesCounterBuffer {
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean enabled;
+    private final int maxPendingEvents;
+    private final Map<Integer, LongAdder> deltas = new ConcurrentHashMap<>();
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+    private final ReadWriteLock flushLock = new ReentrantReadWriteLock();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    @Autowired
+    public LikesCounterBuffer(JdbcTemplate jdbcTemplate,
+                              @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                              @Value("${filmorate.likes.write-behind.flush-interval-ms:200}") long flushIntervalMs,
+                              @Value("${filmorate.likes.write-behind.max-pending-events:1000}") int maxPendingEvents) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.enabled = enabled;
+        this.maxPendingEvents = maxPendingEvents;
+        if (enabled) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "likes-counter-flush");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+            log.info("Включена отложенная запись счетчиков лайков, интервал {} мс", flushIntervalMs);
+        } else {
+            scheduler = null;
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void add(int filmId, int delta) {
+        deltas.computeIfAbsent(filmId, id -> new LongAdder()).add(delta);
+        if (pendingEvents.incrementAndGet() == maxPendingEvents && !scheduler.isShutdown()) {
+            scheduler.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Подписчик вызывается после каждого сброса, изменившего счетчики в БД.
+     */
+    public void addListener(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Еще не записанное в БД изменение счетчика фильма.
+     */
+    public int getPending(int filmId) {
+        LongAdder delta = deltas.get(filmId);
+        return delta == null ? 0 : delta.intValue();
+    }
+
+    /**
+     * Выполняет действие под блокировкой сброса: пока оно не закончится, изменения не переносятся в БД.
+     * Такие действия друг друга не ждут. Вызывать {@link #flush} внутри действия нельзя.
+     */
+    public <T> T withoutFlush(Supplier<T> action) {
+        flushLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            flushLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Записывает накопленные изменения в БД одним пакетом.
+     *
+     * @return количество обновленных фильмов
+     */
+    public int flush() {
+        int count;
+        flushLock.writeLock().lock();
+        try {
+            count = flushLocked();
+        } finally {
+            flushLock.writeLock().unlock();
+        }
+        if (count > 0) {
+            listeners.forEach(Runnable::run);
+        }
+        return count;
+    }
+
+    private int flushLocked() {
+        pendingEvents.set(0);
+        List<Object[]> batch = new ArrayList<>();
+        deltas.forEach((filmId, adder) -> {
+            long delta = adder.sumThenReset();
+            if (delta != 0) {
+                batch.add(new Object[]{delta, filmId});
+            }
+        });
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        try {
+            jdbcTemplate.batchUpdate("UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + ?, VERSION = VERSION + 1 WHERE ID = ?", batch);
+        } catch (RuntimeException e) {
+            // возвращаем изменения в буфер, чтобы не потерять их до следующей попытки
+            for (Object[] row : batch) {
+                deltas.computeIfAbsent((Integer) row[1], id -> new LongAdder()).add((Long) row[0]);
+            }
+            throw e;
+        }
+        return batch.size();
+    }
+
+    @PreDestroy
+    public void drain() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+        scheduler.shutdown();
+        scheduler.awaitTermination(10, TimeUnit.SECONDS);
+        int count = flush();
+        log.info("Сброшены отложенные счетчики лайков перед остановкой, фильмов {}", count);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            log.warn("Не удалось сбросить счетчики лайков: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+
+import javax.annotation.PostConstruct;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Индекс лайков: для каждого пользователя хранится сжатое битовое множество понравившихся фильмов.
+ * Множества не изменяются на месте, при добавлении и удалении лайка пользователю записывается новая копия,
+ * поэтому параллельный подсчет похожести читает их без блокировок.
+ */
+@Slf4j
+@Component
+public class LikesIndex implements Reloadable {
+    /**
+     * Сколько наиболее похожих пользователей учитывается при подборе рекомендаций.
+     */
+    private static final int SIMILAR_USERS = 20;
+    private final List<JdbcTemplate> sources;
+    private volatile Map<Integer, RoaringBitmap> likesByUser = new ConcurrentHashMap<>();
+
+    @Autowired
+    public LikesIndex(JdbcTemplate jdbcTemplate) {
+        this(List.of(jdbcTemplate));
+    }
+
+    /**
+     * Индекс по лайкам из нескольких шардов.
+     */
+    public LikesIndex(List<JdbcTemplate> sources) {
+        this.sources = sources;
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        String sql = "SELECT USER_ID, FILM_ID FROM LIKES";
+        Map<Integer, RoaringBitmap> loaded = new ConcurrentHashMap<>();
+        for (JdbcTemplate jdbcTemplate : sources) {
+            jdbcTemplate.query(sql, (ResultSetExtractor<Void>) rs -> {
+                while (rs.next()) {
+                    loaded.computeIfAbsent(rs.getInt("USER_ID"), id -> new RoaringBitmap()).add(rs.getInt("FILM_ID"));
+                }
+                return null;
+            });
+        }
+        loaded.values().forEach(RoaringBitmap::runOptimize);
+        likesByUser = loaded;
+        log.info("Загружен индекс лайков: пользователей {}", loaded.size());
+    }
+
+    public void add(int userId, int filmId) {
+        likesByUser.compute(userId, (id, films) -> {
+            RoaringBitmap copy = films == null ? new RoaringBitmap() : films.clone();
+            copy.add(filmId);
+            return copy;
+        });
+    }
+
+    public void remove(int userId, int filmId) {
+        likesByUser.computeIfPresent(userId, (id, films) -> {
+            RoaringBitmap copy = films.clone();
+            copy.remove(filmId);
+            return copy.isEmpty() ? null : copy;
+        });
+    }
+
+    /**
+     * Фильмы, которые понравились пользователям с наибольшим пересечением лайков, но еще не понравились самому
+     * пользователю. Вес фильма - сумма размеров пересечений тех похожих пользователей, кому он понравился.
+     * Похожесть считается параллельно по всем пользователям.
+     */
+    public int[] recommend(int userId, int limit) {
+        RoaringBitmap liked = likesByUser.get(userId);
+        if (liked == null) {
+            return new int[0];
+        }
+        long[] similar = likesByUser.entrySet().parallelStream()
+                .filter(entry -> entry.getKey() != userId)
+                .mapToLong(entry -> {
+                    int overlap = RoaringBitmap.andCardinality(liked, entry.getValue());
+                    if (overlap == 0 || RoaringBitmap.andNotCardinality(entry.getValue(), liked) == 0) {
+                        return 0;
+                    }
+                    return ((long) overlap << 32) | (Integer.MAX_VALUE - entry.getKey());
+                })
+                .filter(key -> key != 0)
+                .map(key -> -key)
+                .sorted()
+                .limit(SIMILAR_USERS)
+                .toArray();
+
+        Map<Integer, Integer> scores = new HashMap<>();
+        for (long key : similar) {
+            int overlap = (int) (-key >>> 32);
+            int similarUserId = Integer.MAX_VALUE - (int) -key;
+            RoaringBitmap.andNot(likesByUser.getOrDefault(similarUserId, new RoaringBitmap()), liked)
+                    .forEach((int filmId) -> scores.merge(filmId, overlap, Integer::sum));
+        }
+        return scores.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue(Comparator.reverseOrder())
+                                .thenComparing(Map.Entry.comparingByKey()))
+                .limit(limit)
+                .mapToInt(Map.Entry::getKey)
+                .toArray();
+    }
+}
@@ -0,0 +1,227 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+import ru.yandex.practicum.filmorate.storage.Shards;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Хранилище фильмов, разделенное между {@link Shards}: фильм вместе с жанрами и лайками хранится в шарде
+ * по id фильма. Операции с одним фильмом выполняет {@link FilmDbStorage} его шарда, выборки по всем фильмам
+ * выполняются во всех шардах параллельно, а отсортированные частичные результаты сливаются.
+ * Изменения выполняются в транзакции шарда. Индексы лайков и поиска общие для всех шардов и перестраиваются
+ * по данным всех шардов.
+ * Отложенная запись счетчиков лайков в шардах не используется. Пользователь может храниться в другом шарде,
+ * поэтому внешнего ключа на него нет: он проверяется отдельным запросом уже после вставки лайка, в транзакции шарда,
+ * и лайк без пользователя откатывается. Пользователи не удаляются, поэтому найденный пользователь не исчезнет до фиксации.
+ */
+@Slf4j
+public class ShardedFilmStorage implements FilmStorage, Reloadable {
+    private static final Comparator<Film> BY_ID = Comparator.comparingInt(Film::getId);
+    private static final Comparator<Film> BY_LIKES = Comparator.comparingInt(Film::getLikesCount)
+            .reversed()
+            .thenComparing(BY_ID);
+    private final Shards shards;
+    private final LikesIndex likesIndex;
+    private final FilmSearchIndex searchIndex;
+    private final List<FilmDbStorage> storages;
+    private final UserStorage userStorage;
+
+    public ShardedFilmStorage(Shards shards, DictionaryCache dictionaryCache, EventDbStorage eventStorage,
+                              UserStorage userStorage) {
+        this.shards = shards;
+        this.userStorage = userStorage;
+        this.likesIndex = new LikesIndex(shards.getTemplates());
+        this.searchIndex = new FilmSearchIndex(shards.getTemplates());
+        this.storages = shards.getTemplates().stream()
+                .map(template -> new FilmDbStorage(template, dictionaryCache,
+                                                   new LikesCounterBuffer(template, false, 0, 0),
+                                                   likesIndex, searchIndex, eventStorage))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        likesIndex.reload();
+        searchIndex.reload();
+    }
+
+    @Override
+    public Film create(Film film) {
+        int shard = shards.nextShard();
+        return shards.inTransaction(shard, () -> storages.get(shard).create(film));
+    }
+
+    /**
+     * Раздает фильмы шардам по кругу и добавляет их во всех шардах параллельно, в каждом шарде - в своей транзакции.
+     * Если добавление упало в одном шарде, фильмы, уже добавленные в другие шарды, остаются.
+     */
+    @Override
+    public List<Film> createAll(List<Film> films) {
+        int first = shards.nextShard();
+        Map<Integer, List<Film>> filmsByShard = IntStream.range(0, films.size()).boxed()
+                .collect(Collectors.groupingBy(i -> (first + i) % shards.size(),
+                                               Collectors.mapping(films::get, Collectors.toList())));
+        shards.scatter(new ArrayList<>(filmsByShard.keySet()),
+                       shard -> shards.inTransaction(shard, () -> storages.get(shard).createAll(filmsByShard.get(shard))));
+        return films;
+    }
+
+    @Override
+    public Optional<Film> update(Film film) {
+        if (film.getId() == null) {
+            throw new NullPointerException("Поле id обновляемого фильма не должно быть пустым");
+        }
+        int shard = shards.shardOf(film.getId());
+        return shards.inTransaction(shard, () -> storages.get(shard).update(film));
+    }
+
+    @Override
+    public List<Film> getAll() {
+        List<Film> films = new ArrayList<>();
+        shards.scatter(shard -> storages.get(shard).getAll()).forEach(films::addAll);
+        films.sort(BY_ID);
+        return films;
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return Shards.mergeSorted(shards.scatter(shard -> storages.get(shard).getPage(afterId, limit)), BY_ID, limit);
+    }
+
+    /**
+     * Передает фильмы шард за шардом, внутри шарда - по возрастанию id.
+     */
+    @Override
+    public void streamAll(Consumer<Film> consumer) {
+        storages.forEach(storage -> storage.streamAll(consumer));
+    }
+
+    @Override
+    public Optional<Film> getById(int id) {
+        return storageOf(id).getById(id);
+    }
+
+    @Override
+    public Optional<Long> getVersion(int id) {
+        return storageOf(id).getVersion(id);
+    }
+
+    @Override
+    public LikeChange saveLike(int filmId, int userId) {
+        int shard = shards.shardOf(filmId);
+        return shards.inTransaction(shard, () -> {
+            LikeChange change = storages.get(shard).saveLike(filmId, userId);
+            if (change.isChanged() && userStorage.getVersion(userId).isEmpty()) {
+                throw new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId);
+            }
+            return change;
+        });
+    }
+
+    @Override
+    public LikeChange deleteLike(int filmId, int userId) {
+        int shard = shards.shardOf(filmId);
+        return shards.inTransaction(shard, () -> storages.get(shard).deleteLike(filmId, userId));
+    }
+
+    @Override
+    public void streamHourlyLikes(Instant since, Consumer<HourlyLikes> consumer) {
+        storages.forEach(storage -> storage.streamHourlyLikes(since, consumer));
+    }
+
+    @Override
+    public List<Film> getTopPopular(Integer count) {
+        List<List<Film>> parts = shards.scatter(shard -> {
+            List<Film> part = new ArrayList<>(storages.get(shard).getTopPopular(count));
+            part.sort(BY_LIKES);
+            return part;
+        });
+        return Shards.mergeSorted(parts, BY_LIKES, count);
+    }
+
+    @Override
+    public Map<Integer, Integer> getLikesCounts() {
+        Map<Integer, Integer> counts = new HashMap<>();
+        shards.scatter(shard -> storages.get(shard).getLikesCounts()).forEach(counts::putAll);
+        return counts;
+    }
+
+    @Override
+    public int getMaxId() {
+        return shards.scatter(shard -> storages.get(shard).getMaxId()).stream()
+                .mapToInt(Integer::intValue)
+                .max()
+                .orElse(0);
+    }
+
+    @Override
+    public LikesCountScan findLikesCountDrift(int fromId, int toId) {
+        List<LikesCountScan> scans = shards.scatter(shard -> storages.get(shard).findLikesCountDrift(fromId, toId));
+        List<LikesCountDrift> drifts = new ArrayList<>();
+        scans.forEach(scan -> drifts.addAll(scan.getDrifts()));
+        drifts.sort(Comparator.comparingInt(LikesCountDrift::getFilmId));
+        return new LikesCountScan(scans.stream().mapToInt(LikesCountScan::getFilmsChecked).sum(), drifts);
+    }
+
+    @Override
+    public List<LikesCountDrift> fixLikesCounts(List<LikesCountDrift> drifts) {
+        Map<Integer, List<LikesCountDrift>> driftsByShard = drifts.stream()
+                .collect(Collectors.groupingBy(drift -> shards.shardOf(drift.getFilmId())));
+        List<LikesCountDrift> fixed = new ArrayList<>();
+        shards.scatter(new ArrayList<>(driftsByShard.keySet()),
+                       shard -> shards.inTransaction(shard, () -> storages.get(shard).fixLikesCounts(
+                               driftsByShard.get(shard)))).forEach(fixed::addAll);
+        return fixed;
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int limit) {
+        return getByIds(likesIndex.recommend(userId, limit));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        return getByIds(searchIndex.search(query, limit));
+    }
+
+    private FilmDbStorage storageOf(int id) {
+        return storages.get(shards.shardOf(id));
+    }
+
+    /**
+     * Загружает фильмы из их шардов параллельно и возвращает их в порядке переданных идентификаторов.
+     */
+    @Override
+    public List<Film> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Map<Integer, List<Integer>> idsByShard = Arrays.stream(ids).boxed()
+                .collect(Collectors.groupingBy(shards::shardOf));
+        Map<Integer, Film> films = new HashMap<>();
+        shards.scatter(new ArrayList<>(idsByShard.keySet()), shard -> storages.get(shard).getByIds(
+                        idsByShard.get(shard).stream().mapToInt(Integer::intValue).toArray()))
+                .forEach(part -> part.forEach(film -> films.put(film.getId(), film)));
+        return Arrays.stream(ids).mapToObj(films::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,235 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Список друзей каждого пользователя в виде отсортированного массива идентификаторов.
+ * Массивы не изменяются после публикации: любое изменение заменяет массив пользователя новым,
+ * поэтому читать их можно без блокировок.
+ */
+class FriendGraph {
+    static final int[] EMPTY = new int[0];
+
+    private volatile Map<Integer, int[]> friends = new ConcurrentHashMap<>();
+
+    void replace(Map<Integer, int[]> adjacency) {
+        friends = new ConcurrentHashMap<>(adjacency);
+    }
+
+    int[] getFriends(int userId) {
+        return friends.getOrDefault(userId, EMPTY);
+    }
+
+    void add(int userId, int friendId) {
+        friends.compute(userId, (id, current) -> {
+            if (current == null) {
+                return new int[]{friendId};
+            }
+            int index = Arrays.binarySearch(current, friendId);
+            if (index >= 0) {
+                return current;
+            }
+            int position = -index - 1;
+            int[] changed = new int[current.length + 1];
+            System.arraycopy(current, 0, changed, 0, position);
+            changed[position] = friendId;
+            System.arraycopy(current, position, changed, position + 1, current.length - position);
+            return changed;
+        });
+    }
+
+    void remove(int userId, int friendId) {
+        friends.computeIfPresent(userId, (id, current) -> {
+            int position = Arrays.binarySearch(current, friendId);
+            if (position < 0) {
+                return current;
+            }
+            if (current.length == 1) {
+                return null;
+            }
+            int[] changed = new int[current.length - 1];
+            System.arraycopy(current, 0, changed, 0, position);
+            System.arraycopy(current, position + 1, changed, position, current.length - position - 1);
+            return changed;
+        });
+    }
+
+    /**
+     * Пересечение двух отсортированных массивов слиянием за O(n + m).
+     */
+    static int[] intersect(int[] first, int[] second) {
+        int[] result = new int[Math.min(first.length, second.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length && j < second.length) {
+            if (first[i] < second[j]) {
+                i++;
+            } else if (first[i] > second[j]) {
+                j++;
+            } else {
+                result[count++] = first[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Друзья друзей пользователя, которые еще не у него в друзьях, по убыванию количества общих друзей.
+     * Общие друзья считаются в таблице с открытой адресацией размером с число разных кандидатов,
+     * лучшие {@code limit} отбираются кучей ограниченного размера.
+     */
+    int[] suggest(int userId, int limit) {
+        int[] friendIds = getFriends(userId);
+        MutualCounts counts = new MutualCounts();
+        for (int friendId : friendIds) {
+            for (int candidate : getFriends(friendId)) {
+                if (candidate != userId && Arrays.binarySearch(friendIds, candidate) < 0) {
+                    counts.increment(candidate);
+                }
+            }
+        }
+
+        TopK top = new TopK(limit);
+        counts.forEach(top::offer);
+        return top.toIds();
+    }
+
+    /**
+     * Счетчики по идентификаторам пользователей без упаковки в объекты: открытая адресация с линейным
+     * пробированием, таблица удваивается при заполнении наполовину. Идентификаторы положительные,
+     * поэтому 0 отмечает свободную ячейку.
+     */
+    private static class MutualCounts {
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+        private int size;
+
+        private void increment(int id) {
+            int mask = keys.length - 1;
+            int index = hash(id) & mask;
+            while (keys[index] != 0) {
+                if (keys[index] == id) {
+                    values[index]++;
+                    return;
+                }
+                index = (index + 1) & mask;
+            }
+            keys[index] = id;
+            values[index] = 1;
+            if (++size * 2 > keys.length) {
+                grow();
+            }
+        }
+
+        private void forEach(CountConsumer consumer) {
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    consumer.accept(values[i], keys[i]);
+                }
+            }
+        }
+
+        private void grow() {
+            int[] oldKeys = keys;
+            int[] oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = new int[oldKeys.length * 2];
+            int mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) {
+                    int index = hash(oldKeys[i]) & mask;
+                    while (keys[index] != 0) {
+                        index = (index + 1) & mask;
+                    }
+                    keys[index] = oldKeys[i];
+                    values[index] = oldValues[i];
+                }
+            }
+        }
+
+        private static int hash(int id) {
+            int h = id * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+
+    @FunctionalInterface
+    private interface CountConsumer {
+        void accept(int count, int id);
+    }
+
+    /**
+     * Min-куча фиксированного размера по упакованным в long парам (счетчик, идентификатор).
+     * При равном счетчике выше стоит меньший идентификатор.
+     */
+    private static class TopK {
+        private final long[] heap;
+        private int size;
+
+        private TopK(int capacity) {
+            heap = new long[capacity];
+        }
+
+        private void offer(int score, int id) {
+            long key = ((long) score << 32) | (Integer.MAX_VALUE - id);
+            if (size < heap.length) {
+                heap[size] = key;
+                siftUp(size++);
+            } else if (heap.length > 0 && key > heap[0]) {
+                heap[0] = key;
+                siftDown(0);
+            }
+        }
+
+        private int[] toIds() {
+            long[] sorted = Arrays.copyOf(heap, size);
+            Arrays.sort(sorted);
+            int[] ids = new int[size];
+            for (int i = 0; i < size; i++) {
+                ids[i] = Integer.MAX_VALUE - (int) sorted[size - 1 - i];
+            }
+            return ids;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) / 2;
+                if (heap[parent] <= heap[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < size && heap[left] < heap[smallest]) {
+                    smallest = left;
+                }
+                if (right < size && heap[right] < heap[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void swap(int i, int j) {
+            long tmp = heap[i];
+            heap[i] = heap[j];
+            heap[j] = tmp;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
+import ru.yandex.practicum.filmorate.storage.Shards;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище пользователей, разделенное между {@link Shards}: пользователь и его заявки в друзья хранятся
+ * в шарде по id пользователя. Операции с одним пользователем выполняет {@link UserDbStorage} его шарда,
+ * изменения - в транзакции шарда, списки собираются параллельно со всех шардов. Граф друзей общий для всех шардов, поэтому общие друзья
+ * и рекомендации считаются в памяти, а из шардов загружаются только найденные пользователи.
+ */
+@Slf4j
+public class ShardedUserStorage implements UserStorage, Reloadable {
+    private static final Comparator<User> BY_ID = Comparator.comparingInt(User::getId);
+    private final Shards shards;
+    private final FriendGraph friendGraph = new FriendGraph();
+    private final List<UserDbStorage> storages;
+
+    public ShardedUserStorage(Shards shards, EventDbStorage eventStorage) {
+        this.shards = shards;
+        this.storages = shards.getTemplates().stream()
+                .map(template -> new UserDbStorage(template, friendGraph, eventStorage))
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        Map<Integer, int[]> adjacency = new HashMap<>();
+        shards.scatter(shard -> storages.get(shard).loadFriends()).forEach(adjacency::putAll);
+        friendGraph.replace(adjacency);
+        log.info("Загружен граф друзей из {} шардов, пользователей с друзьями {}", shards.size(), adjacency.size());
+    }
+
+    @Override
+    public User create(User user) {
+        int shard = shards.nextShard();
+        return shards.inTransaction(shard, () -> storages.get(shard).create(user));
+    }
+
+    @Override
+    public Optional<User> update(User user) {
+        if (user.getId() == null) {
+            throw new NullPointerException("Поле id обновляемого пользователя не должно быть пустым");
+        }
+        int shard = shards.shardOf(user.getId());
+        return shards.inTransaction(shard, () -> storages.get(shard).update(user));
+    }
+
+    @Override
+    public List<User> getAll() {
+        List<User> users = new ArrayList<>();
+        shards.scatter(shard -> storages.get(shard).getAll()).forEach(users::addAll);
+        users.sort(BY_ID);
+        return users;
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return Shards.mergeSorted(shards.scatter(shard -> storages.get(shard).getPage(afterId, limit)), BY_ID, limit);
+    }
+
+    @Override
+    public Optional<User> getById(int id) {
+        return storageOf(id).getById(id);
+    }
+
+    @Override
+    public Optional<Long> getVersion(int id) {
+        return storageOf(id).getVersion(id);
+    }
+
+    @Override
+    public void saveFriendship(int requesterId, int responderId) {
+        int shard = shards.shardOf(requesterId);
+        shards.inTransaction(shard, () -> storages.get(shard).saveFriendship(requesterId, responderId));
+    }
+
+    @Override
+    public void deleteFriendship(int requesterId, int responderId) {
+        int shard = shards.shardOf(requesterId);
+        shards.inTransaction(shard, () -> storages.get(shard).deleteFriendship(requesterId, responderId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int id, int otherId) {
+        int[] common = FriendGraph.intersect(friendGraph.getFriends(id), friendGraph.getFriends(otherId));
+        return getByIds(Arrays.stream(common).filter(userId -> userId != id && userId != otherId).toArray());
+    }
+
+    @Override
+    public List<User> getUserFriends(int userId) {
+        return getByIds(friendGraph.getFriends(userId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        return getByIds(friendGraph.suggest(userId, limit));
+    }
+
+    private UserDbStorage storageOf(int id) {
+        return storages.get(shards.shardOf(id));
+    }
+
+    /**
+     * Загружает пользователей из их шардов параллельно и возвращает их в порядке переданных идентификаторов.
+     */
+    @Override
+    public List<User> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        Map<Integer, List<Integer>> idsByShard = Arrays.stream(ids).boxed()
+                .collect(Collectors.groupingBy(shards::shardOf));
+        List<Integer> targets = new ArrayList<>(idsByShard.keySet());
+        Map<Integer, User> users = new HashMap<>();
+        shards.scatter(targets, shard -> storages.get(shard).getByIds(
+                        idsByShard.get(shard).stream().mapToInt(Integer::intValue).toArray()))
+                .forEach(part -> part.forEach(user -> users.put(user.getId(), user)));
+        return Arrays.stream(ids).mapToObj(users::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+}
@@ -1,32 +1,97 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.model.EventType;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.AfterCommit;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
+import ru.yandex.practicum.filmorate.storage.Reloadable;
 
+import javax.annotation.PostConstruct;
 import java.sql.Date;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+@Slf4j
 @Repository
-public class UserDbStorage implements UserStorage {
+public class UserDbStorage implements UserStorage, Reloadable {
     private final JdbcTemplate jdbcTemplate;
+    private final FriendGraph friendGraph;
+    private final EventDbStorage eventStorage;
 
     @Autowired
-    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+    public UserDbStorage(JdbcTemplate jdbcTemplate, EventDbStorage eventStorage) {
+        this(jdbcTemplate, new FriendGraph(), eventStorage);
+    }
+
+    /**
+     * Хранилище одного шарда, которое ведет общий для всех шардов граф друзей.
+     */
+    UserDbStorage(JdbcTemplate jdbcTemplate, FriendGraph friendGraph, EventDbStorage eventStorage) {
         this.jdbcTemplate = jdbcTemplate;
+        this.friendGraph = friendGraph;
+        this.eventStorage = eventStorage;
+    }
+
+    @Override
+    @PostConstruct
+    public void reload() {
+        Map<Integer, int[]> adjacency = loadFriends();
+        friendGraph.replace(adjacency);
+        log.info("Загружен граф друзей, пользователей с друзьями {}", adjacency.size());
+    }
+
+    /**
+     * Читает заявки в друзья, сгруппированные по отправителю.
+     */
+    Map<Integer, int[]> loadFriends() {
+        String sql = "SELECT REQUESTER_ID, RESPONDER_ID FROM FRIENDS ORDER BY REQUESTER_ID, RESPONDER_ID";
+        Map<Integer, int[]> adjacency = jdbcTemplate.query(sql, rs -> {
+            Map<Integer, int[]> result = new HashMap<>();
+            int userId = 0;
+            int[] friends = new int[16];
+            int count = 0;
+            while (rs.next()) {
+                int requesterId = rs.getInt("REQUESTER_ID");
+                if (count > 0 && requesterId != userId) {
+                    result.put(userId, Arrays.copyOf(friends, count));
+                    count = 0;
+                }
+                userId = requesterId;
+                if (count == friends.length) {
+                    friends = Arrays.copyOf(friends, count * 2);
+                }
+                friends[count++] = rs.getInt("RESPONDER_ID");
+            }
+            if (count > 0) {
+                result.put(userId, Arrays.copyOf(friends, count));
+            }
+            return result;
+        });
+        return Objects.requireNonNull(adjacency);
     }
 
     @Override
+    @Transactional
     public User create(User user) {
         if (user.getId() != null) {
             throw new IllegalArgumentException("Поле id создаваемого пользователя должно быть пустым");
@@ -44,15 +109,17 @@ public class UserDbStorage implements UserStorage {
         }, keyHolder);
 
         user.setId(keyHolder.getKeyAs(Integer.class));
+        eventStorage.append(jdbcTemplate, EventType.USER_CREATED, user.getId(), null);
         return user;
     }
 
     @Override
+    @Transactional
     public Optional<User> update(User user) {
         if (user.getId() == null) {
             throw new NullPointerException("Поле id обновляемого пользователя не должно быть пустым");
         }
-        String sql = "UPDATE USERS SET LOGIN=?, NAME=?, EMAIL=?, BIRTHDAY=? WHERE ID=?;";
+        String sql = "UPDATE USERS SET LOGIN=?, NAME=?, EMAIL=?, BIRTHDAY=?, VERSION = VERSION + 1 WHERE ID=?;";
 
         int rowCount = jdbcTemplate.update(sql,
                                            user.getLogin(),
@@ -63,19 +130,26 @@ public class UserDbStorage implements UserStorage {
         if (rowCount == 0) {
             return Optional.empty();
         } else {
+            eventStorage.append(jdbcTemplate, EventType.USER_UPDATED, user.getId(), null);
             return Optional.of(user);
         }
     }
 
     @Override
     public List<User> getAll() {
-        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY FROM USERS;";
+        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY, VERSION FROM USERS;";
         return jdbcTemplate.query(sql, this::mapRowToUser);
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY, VERSION FROM USERS WHERE ID > ? ORDER BY ID LIMIT ?;";
+        return jdbcTemplate.query(sql, this::mapRowToUser, afterId, limit);
+    }
+
     @Override
     public Optional<User> getById(int id) {
-        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY FROM USERS WHERE ID = ?";
+        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY, VERSION FROM USERS WHERE ID = ?";
 
         List<User> users = jdbcTemplate.query(sql, this::mapRowToUser, id);
         if (users.isEmpty()) {
@@ -85,31 +159,43 @@ public class UserDbStorage implements UserStorage {
     }
 
     @Override
+    public Optional<Long> getVersion(int id) {
+        String sql = "SELECT VERSION FROM USERS WHERE ID = ?";
+        return jdbcTemplate.queryForList(sql, Long.class, id).stream().findFirst();
+    }
+
+    @Override
+    @Transactional
     public void saveFriendship(int requesterId, int responderId) {
-        String sql = "MERGE INTO FRIENDS(REQUESTER_ID, RESPONDER_ID) KEY(REQUESTER_ID, RESPONDER_ID) VALUES(?, ?);";
-        jdbcTemplate.update(sql, requesterId, responderId);
+        String sql = "INSERT INTO FRIENDS(REQUESTER_ID, RESPONDER_ID) SELECT ?, ? \n" +
+                "WHERE NOT EXISTS (SELECT 1 FROM FRIENDS WHERE REQUESTER_ID = ? AND RESPONDER_ID = ?);";
+        int inserted;
+        try {
+            inserted = jdbcTemplate.update(sql, requesterId, responderId, requesterId, responderId);
+        } catch (DuplicateKeyException e) {
+            // такая же дружба добавлена параллельно
+            inserted = 0;
+        }
+        if (inserted > 0) {
+            eventStorage.append(jdbcTemplate, EventType.FRIEND_ADDED, requesterId, responderId);
+        }
+        AfterCommit.run(() -> friendGraph.add(requesterId, responderId));
     }
 
     @Override
+    @Transactional
     public void deleteFriendship(int requesterId, int responderId) {
         String sql = "DELETE FROM FRIENDS WHERE REQUESTER_ID = ? AND RESPONDER_ID = ?;";
-        jdbcTemplate.update(sql, requesterId, responderId);
+        if (jdbcTemplate.update(sql, requesterId, responderId) > 0) {
+            eventStorage.append(jdbcTemplate, EventType.FRIEND_REMOVED, requesterId, responderId);
+        }
+        AfterCommit.run(() -> friendGraph.remove(requesterId, responderId));
     }
 
     @Override
     public List<User> getCommonFriends(int id, int otherId) {
-        String sql =
-            "SELECT u.* FROM USERS u\n" +
-            "   JOIN friends f1 ON u.id = f1.RESPONDER_ID\n" +
-            "   JOIN friends f2 ON u.id = f2.RESPONDER_ID \n" +
-            "   WHERE f1.REQUESTER_ID = :first_user AND f1.RESPONDER_ID <> :second_user\n" +
-            "       AND f2.REQUESTER_ID = :second_user AND f2.RESPONDER_ID <> :first_user\n";
-        NamedParameterJdbcTemplate namedParameterJdbcTemplate =
-                new NamedParameterJdbcTemplate(jdbcTemplate.getDataSource());
-        MapSqlParameterSource paramSource = new MapSqlParameterSource();
-        paramSource.addValue("first_user", id);
-        paramSource.addValue("second_user", otherId);
-        return namedParameterJdbcTemplate.query(sql, paramSource, this::mapRowToUser);
+        int[] common = FriendGraph.intersect(friendGraph.getFriends(id), friendGraph.getFriends(otherId));
+        return getByIds(Arrays.stream(common).filter(userId -> userId != id && userId != otherId).toArray());
     }
 
     @Override
@@ -121,6 +207,29 @@ public class UserDbStorage implements UserStorage {
         return jdbcTemplate.query(sql, this::mapRowToUser, userId);
     }
 
+    @Override
+    public List<User> getFriendSuggestions(int userId, int limit) {
+        return getByIds(friendGraph.suggest(userId, limit));
+    }
+
+    /**
+     * Загружает пользователей одним запросом и возвращает их в порядке переданных идентификаторов.
+     */
+    @Override
+    public List<User> getByIds(int[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+        String sql = "SELECT ID, LOGIN, NAME, EMAIL, BIRTHDAY, VERSION FROM USERS WHERE ID IN (:ids)";
+        NamedParameterJdbcTemplate namedParameterJdbcTemplate =
+                new NamedParameterJdbcTemplate(jdbcTemplate.getDataSource());
+        MapSqlParameterSource paramSource = new MapSqlParameterSource();
+        paramSource.addValue("ids", Arrays.stream(ids).boxed().collect(Collectors.toList()));
+        Map<Integer, User> users = namedParameterJdbcTemplate.query(sql, paramSource, this::mapRowToUser).stream()
+                .collect(Collectors.toMap(User::getId, Function.identity()));
+        return Arrays.stream(ids).mapToObj(users::get).filter(Objects::nonNull).collect(Collectors.toList());
+    }
+
     private User mapRowToUser(ResultSet rs, int rowNum) throws SQLException {
         return User.builder()
                 .id(rs.getInt("ID"))
@@ -128,6 +237,7 @@ public class UserDbStorage implements UserStorage {
                 .name(rs.getString("NAME"))
                 .email(rs.getString("EMAIL"))
                 .birthday(rs.getDate("BIRTHDAY").toLocalDate())
+                .version(rs.getLong("VERSION"))
                 .build();
     }
 
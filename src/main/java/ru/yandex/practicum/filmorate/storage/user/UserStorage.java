@@ -12,8 +12,17 @@ public interface UserStorage {
 
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
     Optional<User> getById(int id);
 
+    /**
+     * Пользователи в порядке переданных идентификаторов, ненайденные пропускаются.
+     */
+    List<User> getByIds(int[] ids);
+
+    Optional<Long> getVersion(int id);
+
     void saveFriendship(int requesterId, int responderId);
 
     void deleteFriendship(int requesterId, int responderId);
@@ -21,4 +30,6 @@ public interface UserStorage {
     List<User> getCommonFriends(int id, int otherId);
 
     List<User> getUserFriends(int userId);
+
+    List<User> getFriendSuggestions(int userId, int limit);
 }
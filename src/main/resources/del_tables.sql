@@ -1,3 +1,6 @@
+DROP TABLE
+  IF EXISTS PUBLIC.OUTBOX;
+
 DROP TABLE
   IF EXISTS PUBLIC.FRIENDS;
 
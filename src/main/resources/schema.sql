@@ -1,3 +1,6 @@
+DROP TABLE
+  IF EXISTS PUBLIC.OUTBOX;
+
 DROP TABLE
   IF EXISTS PUBLIC.FRIENDS;
 
@@ -37,6 +40,7 @@ CREATE TABLE
     NAME VARCHAR(100) NULL,
     EMAIL VARCHAR(100) NOT NULL,
     BIRTHDAY DATE NOT NULL,
+    VERSION BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT PK_USERS PRIMARY KEY (ID)
   );
 
@@ -49,6 +53,7 @@ CREATE TABLE
     DURATION INT NOT NULL,
     MPA_ID INT NOT NULL REFERENCES MPA (ID),
     LIKES_COUNT INT NOT NULL DEFAULT 0,
+    VERSION BIGINT NOT NULL DEFAULT 0,
     CONSTRAINT PK_FILMS PRIMARY KEY (ID)
   );
 
@@ -61,14 +66,29 @@ CREATE TABLE
 
 CREATE TABLE
   IF NOT EXISTS LIKES (
-    USER_ID INT NOT NULL REFERENCES USERS (ID),
-    FILM_ID INT NOT NULL REFERENCES FILMS (ID),
-    CONSTRAINT PK_LIKES PRIMARY KEY (USER_ID, FILM_ID)
+    USER_ID INT NOT NULL,
+    FILM_ID INT NOT NULL,
+    CREATED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT PK_LIKES PRIMARY KEY (USER_ID, FILM_ID),
+    CONSTRAINT FK_LIKES_USER FOREIGN KEY (USER_ID) REFERENCES USERS (ID),
+    CONSTRAINT FK_LIKES_FILM FOREIGN KEY (FILM_ID) REFERENCES FILMS (ID)
   );
 
+CREATE INDEX
+  IF NOT EXISTS IDX_LIKES_CREATED_AT ON LIKES (CREATED_AT);
+
 CREATE TABLE
   IF NOT EXISTS GENRES_FILMS (
     GENRE_ID INT NOT NULL REFERENCES GENRES (ID),
     FILM_ID INT NOT NULL REFERENCES FILMS (ID),
     CONSTRAINT PK_GENRES_FILMS PRIMARY KEY (GENRE_ID, FILM_ID)
   );
+
+CREATE TABLE
+  IF NOT EXISTS OUTBOX (
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    TYPE VARCHAR(20) NOT NULL,
+    ENTITY_ID INT NOT NULL,
+    RELATED_ID INT NULL,
+    CREATED_AT TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+  );
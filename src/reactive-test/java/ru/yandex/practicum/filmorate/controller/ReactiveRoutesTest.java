@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.time.LocalDate;
+import java.util.Objects;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest(classes = FilmorateApplication.class)
+@ActiveProfiles("reactive")
+@AutoConfigureWebTestClient
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class ReactiveRoutesTest {
+    private final WebTestClient client;
+
+    @Autowired
+    public ReactiveRoutesTest(WebTestClient client) {
+        this.client = client;
+    }
+
+    @Test
+    public void filmLifecycle() {
+        User user = postUser("reactive_user");
+        Film film = Film.builder()
+                .name("Reactive film")
+                .description("Film stored through R2DBC")
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .duration(100)
+                .mpa(MpaRating.builder().id(1).build())
+                .build();
+        film.addGenre(Genre.builder().id(2).build());
+
+        Film created = client.post().uri("/films").contentType(MediaType.APPLICATION_JSON).bodyValue(film)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(Film.class).returnResult().getResponseBody();
+        Objects.requireNonNull(created);
+
+        client.get().uri("/films/{id}", created.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.name").isEqualTo("Reactive film")
+                .jsonPath("$.mpa.id").isEqualTo(1)
+                .jsonPath("$.genres[0].id").isEqualTo(2);
+
+        client.put().uri("/films/{id}/like/{userId}", created.getId(), user.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.likesCount").isEqualTo(1);
+
+        client.get().uri("/films/popular?count=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].id").isEqualTo(created.getId())
+                .jsonPath("$[0].likesCount").isEqualTo(1);
+
+        client.delete().uri("/films/{id}/like/{userId}", created.getId(), user.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$.likesCount").isEqualTo(0);
+    }
+
+    @Test
+    public void friends() {
+        User user = postUser("first");
+        User friend = postUser("second");
+        User common = postUser("third");
+
+        client.put().uri("/users/{id}/friends/{friendId}", user.getId(), common.getId()).exchange().expectStatus().isOk();
+        client.put().uri("/users/{id}/friends/{friendId}", friend.getId(), common.getId()).exchange().expectStatus().isOk();
+        client.put().uri("/users/{id}/friends/{friendId}", user.getId(), friend.getId()).exchange().expectStatus().isOk();
+
+        client.get().uri("/users/{id}/friends", user.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$").value(hasSize(2));
+        client.get().uri("/users/{id}/friends/common/{otherId}", user.getId(), friend.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$").value(hasSize(1))
+                .jsonPath("$[0].id").isEqualTo(common.getId());
+
+        client.delete().uri("/users/{id}/friends/{friendId}", user.getId(), common.getId()).exchange().expectStatus().isOk();
+        client.get().uri("/users/{id}/friends", user.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody().jsonPath("$").value(hasSize(1));
+    }
+
+    @Test
+    public void errors() {
+        client.get().uri("/films/9999")
+                .exchange()
+                .expectStatus().isNotFound()
+                .expectBody().jsonPath("$.errorMessage").exists();
+        client.get().uri("/users/9999/friends")
+                .exchange()
+                .expectStatus().isNotFound();
+        client.get().uri("/users/abc")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        User invalid = User.builder().login("bad login").email("user@mail.ru").birthday(LocalDate.of(1990, 1, 1)).build();
+        client.post().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(invalid)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void updateUser() {
+        User user = postUser("to_update");
+        user.setName("Updated");
+
+        User updated = client.put().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(user)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(User.class).returnResult().getResponseBody();
+        assertEquals("Updated", Objects.requireNonNull(updated).getName());
+
+        user = User.builder().id(9999).login("missing").email("missing@mail.ru").birthday(LocalDate.of(1990, 1, 1)).build();
+        client.put().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(user)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    private User postUser(String login) {
+        User user = User.builder()
+                .login(login)
+                .email(login + "@mail.ru")
+                .birthday(LocalDate.of(1990, 1, 1))
+                .build();
+        return client.post().uri("/users").contentType(MediaType.APPLICATION_JSON).bodyValue(user)
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody(User.class).returnResult().getResponseBody();
+    }
+}
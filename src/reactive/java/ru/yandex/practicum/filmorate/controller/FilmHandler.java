@@ -0,0 +1,83 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.validation.Transfer;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+
+import javax.validation.Validator;
+
+/**
+ * Обработчики маршрутов /films профиля reactive, повторяют контракт {@link FilmController}.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+class FilmHandler {
+    private final ReactiveFilmService service;
+    private final Validator validator;
+
+    @Autowired
+    FilmHandler(ReactiveFilmService service, Validator validator) {
+        this.service = service;
+        this.validator = validator;
+    }
+
+    Mono<ServerResponse> create(ServerRequest request) {
+        log.info("POST /films");
+        return ReactiveRequests.body(request, Film.class, validator, Transfer.New.class)
+                .flatMap(service::create)
+                .doOnNext(film -> log.info("Добавлен фильм с id {}", film.getId()))
+                .flatMap(film -> ServerResponse.status(HttpStatus.CREATED).bodyValue(film));
+    }
+
+    Mono<ServerResponse> update(ServerRequest request) {
+        log.info("PUT /films");
+        return ReactiveRequests.body(request, Film.class, validator, Transfer.Existing.class)
+                .flatMap(service::update)
+                .doOnNext(film -> log.info("Обновлен фильм с id {}", film.getId()))
+                .flatMap(film -> ServerResponse.ok().bodyValue(film));
+    }
+
+    Mono<ServerResponse> getAll(ServerRequest request) {
+        log.info("GET /films");
+        return service.getAll().collectList().flatMap(list -> ServerResponse.ok().bodyValue(list));
+    }
+
+    Mono<ServerResponse> getById(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        log.info("GET /films/{}", id);
+        return service.getById(id).flatMap(film -> ServerResponse.ok().bodyValue(film));
+    }
+
+    Mono<ServerResponse> setLike(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        int userId = ReactiveRequests.intPathVariable(request, "userId");
+        log.info("PUT /films/{}/like/{}", id, userId);
+        return service.setLike(id, userId)
+                .doOnNext(film -> log.info("Пользователь с id {} поставил лайк фильму {}", userId, film.getId()))
+                .flatMap(film -> ServerResponse.ok().bodyValue(film));
+    }
+
+    Mono<ServerResponse> deleteLike(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        int userId = ReactiveRequests.intPathVariable(request, "userId");
+        log.info("DELETE /films/{}/like/{}", id, userId);
+        return service.deleteLike(id, userId)
+                .doOnNext(film -> log.info("Пользователь с id {} удалил лайк фильму {}", userId, film.getId()))
+                .flatMap(film -> ServerResponse.ok().bodyValue(film));
+    }
+
+    Mono<ServerResponse> getTopPopular(ServerRequest request) {
+        int count = ReactiveRequests.intQueryParam(request, "count", 10);
+        log.info("GET /films/popular?count={}", count);
+        return service.getTopPopular(count).collectList().flatMap(list -> ServerResponse.ok().bodyValue(list));
+    }
+}
@@ -0,0 +1,44 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.web.reactive.function.server.ServerRequest;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
+import javax.validation.Validator;
+import java.util.Set;
+
+/**
+ * Разбор параметров и тела запроса для функциональных маршрутов, где нет {@code @Validated} и {@code @PathVariable}.
+ */
+final class ReactiveRequests {
+    private ReactiveRequests() {
+    }
+
+    static <T> Mono<T> body(ServerRequest request, Class<T> type, Validator validator, Class<?> group) {
+        return request.bodyToMono(type)
+                .switchIfEmpty(Mono.error(() -> new IllegalArgumentException("Тело запроса не должно быть пустым")))
+                .doOnNext(value -> {
+                    Set<ConstraintViolation<T>> violations = validator.validate(value, group);
+                    if (!violations.isEmpty()) {
+                        throw new ConstraintViolationException(violations);
+                    }
+                });
+    }
+
+    static int intPathVariable(ServerRequest request, String name) {
+        return parse(name, request.pathVariable(name));
+    }
+
+    static int intQueryParam(ServerRequest request, String name, int defaultValue) {
+        return request.queryParam(name).map(value -> parse(name, value)).orElse(defaultValue);
+    }
+
+    private static int parse(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Параметр " + name + " должен быть целым числом, получено " + value);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.ReactiveErrorHandler;
+
+/**
+ * Маршруты /films и /users для профиля reactive: вместо {@link FilmController} и {@link UserController}
+ * запросы обслуживают {@link FilmHandler} и {@link UserHandler} поверх R2DBC.
+ * Пакетное добавление, страницы, поиск, подсказки и рекомендации опираются на индексы в памяти
+ * и в реактивном стеке не публикуются.
+ */
+@Configuration
+@Profile("reactive")
+public class ReactiveRoutes {
+    @Bean
+    RouterFunction<ServerResponse> filmRoutes(FilmHandler handler, ReactiveErrorHandler errorHandler) {
+        return RouterFunctions.route()
+                .POST("/films", handler::create)
+                .PUT("/films", handler::update)
+                .GET("/films", handler::getAll)
+                .GET("/films/popular", handler::getTopPopular)
+                .GET("/films/{id}", handler::getById)
+                .PUT("/films/{id}/like/{userId}", handler::setLike)
+                .DELETE("/films/{id}/like/{userId}", handler::deleteLike)
+                .filter((request, next) -> Mono.defer(() -> next.handle(request))
+                        .onErrorResume(e -> errorHandler.handle(e, request)))
+                .build();
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> userRoutes(UserHandler handler, ReactiveErrorHandler errorHandler) {
+        return RouterFunctions.route()
+                .POST("/users", handler::create)
+                .PUT("/users", handler::update)
+                .GET("/users", handler::getAll)
+                .GET("/users/{id}", handler::getById)
+                .PUT("/users/{id}/friends/{friendId}", handler::addFriend)
+                .DELETE("/users/{id}/friends/{friendId}", handler::deleteFriend)
+                .GET("/users/{id}/friends", handler::getFriends)
+                .GET("/users/{id}/friends/common/{otherId}", handler::getCommonFriends)
+                .filter((request, next) -> Mono.defer(() -> next.handle(request))
+                        .onErrorResume(e -> errorHandler.handle(e, request)))
+                .build();
+    }
+}
@@ -0,0 +1,86 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.model.validation.Transfer;
+import ru.yandex.practicum.filmorate.service.ReactiveUserService;
+
+import javax.validation.Validator;
+
+/**
+ * Обработчики маршрутов /users профиля reactive, повторяют контракт {@link UserController}.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+class UserHandler {
+    private final ReactiveUserService service;
+    private final Validator validator;
+
+    @Autowired
+    UserHandler(ReactiveUserService service, Validator validator) {
+        this.service = service;
+        this.validator = validator;
+    }
+
+    Mono<ServerResponse> create(ServerRequest request) {
+        log.info("POST /users");
+        return ReactiveRequests.body(request, User.class, validator, Transfer.New.class)
+                .flatMap(service::create)
+                .doOnNext(user -> log.info("Добавлен пользователь с id {}", user.getId()))
+                .flatMap(user -> ServerResponse.status(HttpStatus.CREATED).bodyValue(user));
+    }
+
+    Mono<ServerResponse> update(ServerRequest request) {
+        log.info("PUT /users");
+        return ReactiveRequests.body(request, User.class, validator, Transfer.Existing.class)
+                .flatMap(service::update)
+                .doOnNext(user -> log.info("Обновлен пользователь с id {}", user.getId()))
+                .flatMap(user -> ServerResponse.ok().bodyValue(user));
+    }
+
+    Mono<ServerResponse> getAll(ServerRequest request) {
+        log.info("GET /users");
+        return service.getAll().collectList().flatMap(list -> ServerResponse.ok().bodyValue(list));
+    }
+
+    Mono<ServerResponse> getById(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        log.info("GET /users/{}", id);
+        return service.getById(id).flatMap(user -> ServerResponse.ok().bodyValue(user));
+    }
+
+    Mono<ServerResponse> addFriend(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        int friendId = ReactiveRequests.intPathVariable(request, "friendId");
+        log.info("PUT /users/{}/friends/{}", id, friendId);
+        return service.addFriend(id, friendId).then(ServerResponse.ok().build());
+    }
+
+    Mono<ServerResponse> deleteFriend(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        int friendId = ReactiveRequests.intPathVariable(request, "friendId");
+        log.info("DELETE /users/{}/friends/{}", id, friendId);
+        return service.deleteFriend(id, friendId).then(ServerResponse.ok().build());
+    }
+
+    Mono<ServerResponse> getFriends(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        log.info("GET /users/{}/friends", id);
+        return service.getUserFriends(id).collectList().flatMap(list -> ServerResponse.ok().bodyValue(list));
+    }
+
+    Mono<ServerResponse> getCommonFriends(ServerRequest request) {
+        int id = ReactiveRequests.intPathVariable(request, "id");
+        int otherId = ReactiveRequests.intPathVariable(request, "otherId");
+        log.info("GET /users/{}/friends/common/{}", id, otherId);
+        return service.getCommonFriends(id, otherId).collectList().flatMap(list -> ServerResponse.ok().bodyValue(list));
+    }
+}
@@ -0,0 +1,42 @@
+package ru.yandex.practicum.filmorate.exception;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ValidationException;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Аналог {@link ErrorHandler} для функциональных маршрутов WebFlux, на которые {@code @RestControllerAdvice} не действует.
+ */
+@Slf4j
+@Component
+@Profile("reactive")
+public class ReactiveErrorHandler {
+    public Mono<ServerResponse> handle(Throwable e, ServerRequest request) {
+        log.warn(e.getMessage());
+        return ServerResponse.status(toStatus(e))
+                .bodyValue(Map.of("errorMessage", Objects.requireNonNullElse(e.getMessage(), e.getClass().getName())));
+    }
+
+    private static HttpStatus toStatus(Throwable e) {
+        if (e instanceof UnknownModelObjectException) {
+            return HttpStatus.NOT_FOUND;
+        }
+        if (e instanceof ValidationException || e instanceof IllegalArgumentException || e instanceof DataAccessException) {
+            return HttpStatus.BAD_REQUEST;
+        }
+        if (e instanceof ResponseStatusException) {
+            return ((ResponseStatusException) e).getStatus();
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+}
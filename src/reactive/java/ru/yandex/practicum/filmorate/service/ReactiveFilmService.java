@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.ReactiveFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.ReactiveUserStorage;
+
+/**
+ * Неблокирующий аналог {@link FilmService}. Рейтинг популярности в памяти не ведет:
+ * популярные фильмы выбираются из БД по FILMS.LIKES_COUNT.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveFilmService {
+    private final ReactiveFilmStorage filmStorage;
+    private final ReactiveUserStorage userStorage;
+
+    @Autowired
+    public ReactiveFilmService(ReactiveFilmStorage filmStorage, ReactiveUserStorage userStorage) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    public Mono<Film> create(Film film) {
+        return filmStorage.create(film);
+    }
+
+    public Mono<Film> update(Film film) {
+        return filmStorage.update(film)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден фильм для обновления с id = " + film.getId())));
+    }
+
+    public Flux<Film> getAll() {
+        return filmStorage.getAll();
+    }
+
+    public Mono<Film> getById(int id) {
+        return filmStorage.getById(id)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден фильм с id = " + id)));
+    }
+
+    public Mono<Film> setLike(int filmId, int userId) {
+        return userStorage.getById(userId)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId + " для постановки лайка")))
+                .then(filmStorage.getById(filmId))
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден фильм для лайка с id = " + filmId)))
+                .flatMap(film -> filmStorage.saveLike(filmId, userId).then(Mono.fromSupplier(() -> {
+                    film.addLike();
+                    return film;
+                })));
+    }
+
+    public Mono<Film> deleteLike(int filmId, int userId) {
+        return userStorage.getById(userId)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден пользователь с id = " + userId + " для удаления лайка")))
+                .then(filmStorage.getById(filmId))
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден фильм для удаления лайка с id = " + filmId)))
+                .flatMap(film -> filmStorage.deleteLike(filmId, userId).then(Mono.fromSupplier(() -> {
+                    film.deleteLike();
+                    return film;
+                })));
+    }
+
+    public Flux<Film> getTopPopular(int count) {
+        if (count <= 0) {
+            return Flux.error(new IllegalArgumentException("Количество популярных фильмов должно быть положительным, получено " + count));
+        }
+        return filmStorage.getTopPopular(count);
+    }
+}
@@ -0,0 +1,66 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.ReactiveUserStorage;
+
+/**
+ * Неблокирующий аналог {@link UserService}.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveUserService {
+    private final ReactiveUserStorage storage;
+
+    @Autowired
+    public ReactiveUserService(ReactiveUserStorage storage) {
+        this.storage = storage;
+    }
+
+    public Mono<User> create(User user) {
+        return storage.create(user);
+    }
+
+    public Mono<User> update(User user) {
+        return storage.update(user)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден пользователь для обновления с id = " + user.getId())));
+    }
+
+    public Flux<User> getAll() {
+        return storage.getAll();
+    }
+
+    public Mono<User> getById(int id) {
+        return storage.getById(id)
+                .switchIfEmpty(Mono.error(() -> new UnknownModelObjectException("В хранилище не найден пользователь с id = " + id)));
+    }
+
+    public Mono<Void> addFriend(int id, int friendId) {
+        if (id == friendId) {
+            return Mono.error(new IllegalArgumentException(
+                    "Получены одинаковые идентификаторы пользователей для добавления в друзья, id = " + id));
+        }
+        return getById(id).then(getById(friendId)).then(storage.saveFriendship(id, friendId));
+    }
+
+    public Mono<Void> deleteFriend(int id, int friendId) {
+        if (id == friendId) {
+            return Mono.error(new IllegalArgumentException(
+                    "Получены одинаковые идентификаторы пользователей для удаления из друзей, id = " + id));
+        }
+        return getById(id).then(getById(friendId)).then(storage.deleteFriendship(id, friendId));
+    }
+
+    public Flux<User> getUserFriends(int userId) {
+        return getById(userId).thenMany(storage.getUserFriends(userId));
+    }
+
+    public Flux<User> getCommonFriends(int id, int otherId) {
+        return getById(id).then(getById(otherId)).thenMany(storage.getCommonFriends(id, otherId));
+    }
+}
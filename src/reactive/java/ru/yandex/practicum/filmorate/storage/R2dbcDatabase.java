@@ -0,0 +1,68 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.connection.R2dbcTransactionManager;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.reactive.TransactionalOperator;
+
+import javax.annotation.PreDestroy;
+
+/**
+ * Пул соединений R2DBC к той же БД H2, что и {@code spring.datasource.url}: схему по-прежнему создает schema.sql
+ * при запуске. Фабрика соединений и менеджер транзакций не публикуются бинами, иначе Spring Boot не создаст
+ * DataSource, а {@code @Transactional} в JDBC-хранилищах не сможет выбрать менеджер транзакций.
+ */
+@Slf4j
+@Getter
+@Component
+@Profile("reactive")
+public class R2dbcDatabase {
+    private static final String H2_URL_PREFIX = "jdbc:h2:";
+    private final ConnectionPool pool;
+    private final DatabaseClient client;
+    private final TransactionalOperator transactionalOperator;
+
+    @Autowired
+    public R2dbcDatabase(@Value("${spring.datasource.url}") String url,
+                         @Value("${spring.datasource.username:sa}") String username,
+                         @Value("${spring.datasource.password:}") String password,
+                         @Value("${filmorate.r2dbc.pool.max-size:16}") int maxSize) {
+        if (!url.startsWith(H2_URL_PREFIX)) {
+            throw new IllegalStateException("Реактивное хранилище поддерживает только H2, получен адрес " + url);
+        }
+        H2ConnectionConfiguration.Builder configuration = H2ConnectionConfiguration.builder()
+                .url(url.substring(H2_URL_PREFIX.length()))
+                .username(username);
+        if (!password.isEmpty()) {
+            configuration.password(password);
+        }
+        this.pool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration.build()))
+                                               .maxSize(maxSize)
+                                               .build());
+        this.client = DatabaseClient.create(pool);
+        this.transactionalOperator = TransactionalOperator.create(new R2dbcTransactionManager(pool));
+        log.info("Создан пул R2DBC на {} соединений", maxSize);
+    }
+
+    /**
+     * Привязывает значение, которое может быть null: R2DBC требует тип для пустого параметра.
+     */
+    public static <T> DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec,
+                                                                     String name, T value, Class<T> type) {
+        return value == null ? spec.bindNull(name, type) : spec.bind(name, value);
+    }
+
+    @PreDestroy
+    void close() {
+        pool.dispose();
+    }
+}
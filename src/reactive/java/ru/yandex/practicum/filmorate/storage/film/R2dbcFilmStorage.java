@@ -0,0 +1,204 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.IdentifiedModelObject;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.R2dbcDatabase;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Хранилище фильмов поверх R2DBC. Индексы в памяти (поиск, лайки для рекомендаций) не обновляет,
+ * после записи через него их нужно перестроить запросом POST /admin/indexes/reload.
+ */
+@Repository
+@Profile("reactive")
+public class R2dbcFilmStorage implements ReactiveFilmStorage {
+    private static final String FILM_COLUMNS = "ID, NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID, LIKES_COUNT, VERSION";
+    private final DatabaseClient client;
+    private final TransactionalOperator transactionalOperator;
+    private final DictionaryCache dictionaryCache;
+
+    @Autowired
+    public R2dbcFilmStorage(R2dbcDatabase database, DictionaryCache dictionaryCache) {
+        this.client = database.getClient();
+        this.transactionalOperator = database.getTransactionalOperator();
+        this.dictionaryCache = dictionaryCache;
+    }
+
+    @Override
+    public Mono<Film> create(Film film) {
+        if (film.getId() != null) {
+            return Mono.error(new IllegalArgumentException("Поле id создаваемого фильма должно быть пустым"));
+        }
+        String sql = "INSERT INTO FILMS(NAME, DESCRIPTION, RELEASE_DATE, DURATION, MPA_ID) " +
+                "VALUES(:name, :description, :releaseDate, :duration, :mpaId)";
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("name", film.getName())
+                .bind("description", film.getDescription())
+                .bind("releaseDate", film.getReleaseDate())
+                .bind("duration", film.getDuration());
+        return R2dbcDatabase.bindNullable(spec, "mpaId", mpaId(film), Integer.class)
+                .filter(statement -> statement.returnGeneratedValues("ID"))
+                .map(row -> row.get("ID", Integer.class))
+                .one()
+                .flatMap(id -> {
+                    film.setId(id);
+                    return saveFilmGenres(film);
+                })
+                .then(Mono.fromSupplier(() -> resolveDictionaries(film)))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Film> update(Film film) {
+        if (film.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Поле id обновляемого фильма не должно быть пустым"));
+        }
+        String sql = "UPDATE FILMS SET NAME = :name, DESCRIPTION = :description, RELEASE_DATE = :releaseDate, " +
+                "DURATION = :duration, MPA_ID = :mpaId, LIKES_COUNT = :likesCount, VERSION = VERSION + 1 WHERE ID = :id";
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("name", film.getName())
+                .bind("description", film.getDescription())
+                .bind("releaseDate", film.getReleaseDate())
+                .bind("duration", film.getDuration())
+                .bind("likesCount", film.getLikesCount())
+                .bind("id", film.getId());
+        return R2dbcDatabase.bindNullable(spec, "mpaId", mpaId(film), Integer.class)
+                .fetch()
+                .rowsUpdated()
+                .filter(rowCount -> rowCount > 0)
+                .flatMap(rowCount -> saveFilmGenres(film).then(Mono.fromSupplier(() -> resolveDictionaries(film))))
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Flux<Film> getAll() {
+        return withGenres(client.sql("SELECT " + FILM_COLUMNS + " FROM FILMS ORDER BY ID")
+                                  .map(this::mapRowToFilm)
+                                  .all());
+    }
+
+    @Override
+    public Mono<Film> getById(int id) {
+        return withGenres(client.sql("SELECT " + FILM_COLUMNS + " FROM FILMS WHERE ID = :id")
+                                  .bind("id", id)
+                                  .map(this::mapRowToFilm)
+                                  .all())
+                .next();
+    }
+
+    @Override
+    public Mono<Void> saveLike(int filmId, int userId) {
+        return client.sql("MERGE INTO LIKES(USER_ID, FILM_ID) KEY(USER_ID, FILM_ID) VALUES(:userId, :filmId)")
+                .bind("userId", userId)
+                .bind("filmId", filmId)
+                .then()
+                .then(client.sql("UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT + 1, VERSION = VERSION + 1 WHERE ID = :filmId")
+                              .bind("filmId", filmId)
+                              .then())
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Mono<Void> deleteLike(int filmId, int userId) {
+        return client.sql("DELETE FROM LIKES WHERE FILM_ID = :filmId AND USER_ID = :userId")
+                .bind("filmId", filmId)
+                .bind("userId", userId)
+                .then()
+                .then(client.sql("UPDATE FILMS SET LIKES_COUNT = LIKES_COUNT - 1, VERSION = VERSION + 1 WHERE ID = :filmId")
+                              .bind("filmId", filmId)
+                              .then())
+                .as(transactionalOperator::transactional);
+    }
+
+    @Override
+    public Flux<Film> getTopPopular(int count) {
+        return withGenres(client.sql("SELECT " + FILM_COLUMNS + " FROM FILMS ORDER BY LIKES_COUNT DESC, ID LIMIT :count")
+                                  .bind("count", count)
+                                  .map(this::mapRowToFilm)
+                                  .all());
+    }
+
+    /**
+     * Дожидается всех фильмов и загружает их жанры одним запросом, порядок фильмов сохраняется.
+     */
+    private Flux<Film> withGenres(Flux<Film> films) {
+        return films.collectList().flatMapMany(list -> {
+            if (list.isEmpty()) {
+                return Flux.empty();
+            }
+            Map<Integer, Film> filmsById = list.stream()
+                    .collect(Collectors.toMap(IdentifiedModelObject::getId, Function.identity()));
+            return client.sql("SELECT FILM_ID, GENRE_ID FROM GENRES_FILMS WHERE FILM_ID IN (:ids) ORDER BY FILM_ID, GENRE_ID")
+                    .bind("ids", filmsById.keySet())
+                    .map(row -> {
+                        Film film = filmsById.get(row.get("FILM_ID", Integer.class));
+                        dictionaryCache.getGenreById(row.get("GENRE_ID", Integer.class)).ifPresent(film::addGenre);
+                        return film;
+                    })
+                    .all()
+                    .thenMany(Flux.fromIterable(list));
+        });
+    }
+
+    private Mono<Void> saveFilmGenres(Film film) {
+        List<Genre> genres = List.copyOf(film.getGenres());
+        return client.sql("DELETE FROM GENRES_FILMS WHERE FILM_ID = :filmId")
+                .bind("filmId", film.getId())
+                .then()
+                .thenMany(Flux.fromIterable(genres)
+                                  .concatMap(genre -> client.sql("MERGE INTO GENRES_FILMS(GENRE_ID, FILM_ID) " +
+                                                                         "KEY(GENRE_ID, FILM_ID) VALUES(:genreId, :filmId)")
+                                          .bind("genreId", genre.getId())
+                                          .bind("filmId", film.getId())
+                                          .then()))
+                .then();
+    }
+
+    private Film resolveDictionaries(Film film) {
+        if (film.getMpa() != null) {
+            dictionaryCache.getMpaById(film.getMpa().getId()).ifPresent(film::setMpa);
+        }
+        List<Genre> genres = film.getGenres().stream()
+                .map(genre -> dictionaryCache.getGenreById(genre.getId()).orElse(genre))
+                .collect(Collectors.toList());
+        film.getGenres().clear();
+        genres.forEach(film::addGenre);
+        return film;
+    }
+
+    private static Integer mpaId(Film film) {
+        return Optional.ofNullable(film.getMpa()).map(MpaRating::getId).orElse(null);
+    }
+
+    private Film mapRowToFilm(Row row) {
+        return Film.builder()
+                .id(row.get("ID", Integer.class))
+                .name(row.get("NAME", String.class))
+                .description(row.get("DESCRIPTION", String.class))
+                .releaseDate(row.get("RELEASE_DATE", LocalDate.class))
+                .duration(row.get("DURATION", Integer.class))
+                .mpa(dictionaryCache.getMpaById(row.get("MPA_ID", Integer.class)).orElse(null))
+                .likesCount(row.get("LIKES_COUNT", Integer.class))
+                .version(row.get("VERSION", Long.class))
+                .build();
+    }
+}
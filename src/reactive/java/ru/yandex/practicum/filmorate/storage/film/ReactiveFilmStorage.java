@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.Film;
+
+/**
+ * Неблокирующий аналог {@link FilmStorage} для профиля reactive.
+ */
+public interface ReactiveFilmStorage {
+    Mono<Film> create(Film film);
+
+    Mono<Film> update(Film film);
+
+    Flux<Film> getAll();
+
+    Mono<Film> getById(int id);
+
+    Mono<Void> saveLike(int filmId, int userId);
+
+    Mono<Void> deleteLike(int filmId, int userId);
+
+    Flux<Film> getTopPopular(int count);
+}
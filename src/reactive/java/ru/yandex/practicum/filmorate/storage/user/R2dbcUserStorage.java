@@ -0,0 +1,140 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import io.r2dbc.spi.Row;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.R2dbcDatabase;
+
+import java.time.LocalDate;
+
+/**
+ * Хранилище пользователей поверх R2DBC. Общие друзья считаются запросом к БД, граф друзей в памяти
+ * не используется и не обновляется: после записи через это хранилище его нужно перестроить
+ * запросом POST /admin/indexes/reload.
+ */
+@Repository
+@Profile("reactive")
+public class R2dbcUserStorage implements ReactiveUserStorage {
+    private static final String USER_COLUMNS = "u.ID, u.LOGIN, u.NAME, u.EMAIL, u.BIRTHDAY, u.VERSION";
+    private final DatabaseClient client;
+
+    @Autowired
+    public R2dbcUserStorage(R2dbcDatabase database) {
+        this.client = database.getClient();
+    }
+
+    @Override
+    public Mono<User> create(User user) {
+        if (user.getId() != null) {
+            return Mono.error(new IllegalArgumentException("Поле id создаваемого пользователя должно быть пустым"));
+        }
+        String sql = "INSERT INTO USERS (LOGIN, NAME, EMAIL, BIRTHDAY) VALUES(:login, :name, :email, :birthday)";
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("login", user.getLogin())
+                .bind("email", user.getEmail())
+                .bind("birthday", user.getBirthday());
+        return R2dbcDatabase.bindNullable(spec, "name", user.getName(), String.class)
+                .filter(statement -> statement.returnGeneratedValues("ID"))
+                .map(row -> row.get("ID", Integer.class))
+                .one()
+                .map(id -> {
+                    user.setId(id);
+                    return user;
+                });
+    }
+
+    @Override
+    public Mono<User> update(User user) {
+        if (user.getId() == null) {
+            return Mono.error(new IllegalArgumentException("Поле id обновляемого пользователя не должно быть пустым"));
+        }
+        String sql = "UPDATE USERS SET LOGIN = :login, NAME = :name, EMAIL = :email, BIRTHDAY = :birthday, " +
+                "VERSION = VERSION + 1 WHERE ID = :id";
+
+        DatabaseClient.GenericExecuteSpec spec = client.sql(sql)
+                .bind("login", user.getLogin())
+                .bind("email", user.getEmail())
+                .bind("birthday", user.getBirthday())
+                .bind("id", user.getId());
+        return R2dbcDatabase.bindNullable(spec, "name", user.getName(), String.class)
+                .fetch()
+                .rowsUpdated()
+                .filter(rowCount -> rowCount > 0)
+                .map(rowCount -> user);
+    }
+
+    @Override
+    public Flux<User> getAll() {
+        return client.sql("SELECT " + USER_COLUMNS + " FROM USERS u ORDER BY u.ID")
+                .map(this::mapRowToUser)
+                .all();
+    }
+
+    @Override
+    public Mono<User> getById(int id) {
+        return client.sql("SELECT " + USER_COLUMNS + " FROM USERS u WHERE u.ID = :id")
+                .bind("id", id)
+                .map(this::mapRowToUser)
+                .one();
+    }
+
+    @Override
+    public Mono<Void> saveFriendship(int requesterId, int responderId) {
+        return client.sql("MERGE INTO FRIENDS(REQUESTER_ID, RESPONDER_ID) KEY(REQUESTER_ID, RESPONDER_ID) " +
+                                  "VALUES(:requesterId, :responderId)")
+                .bind("requesterId", requesterId)
+                .bind("responderId", responderId)
+                .then();
+    }
+
+    @Override
+    public Mono<Void> deleteFriendship(int requesterId, int responderId) {
+        return client.sql("DELETE FROM FRIENDS WHERE REQUESTER_ID = :requesterId AND RESPONDER_ID = :responderId")
+                .bind("requesterId", requesterId)
+                .bind("responderId", responderId)
+                .then();
+    }
+
+    @Override
+    public Flux<User> getCommonFriends(int id, int otherId) {
+        String sql =
+                "SELECT " + USER_COLUMNS + " FROM USERS u\n" +
+                "JOIN FRIENDS f ON u.ID = f.RESPONDER_ID AND f.REQUESTER_ID = :id\n" +
+                "JOIN FRIENDS o ON u.ID = o.RESPONDER_ID AND o.REQUESTER_ID = :otherId\n" +
+                "ORDER BY u.ID";
+        return client.sql(sql)
+                .bind("id", id)
+                .bind("otherId", otherId)
+                .map(this::mapRowToUser)
+                .all();
+    }
+
+    @Override
+    public Flux<User> getUserFriends(int userId) {
+        String sql =
+                "SELECT " + USER_COLUMNS + " FROM USERS u\n" +
+                "JOIN FRIENDS f ON u.ID = f.RESPONDER_ID\n" +
+                "WHERE f.REQUESTER_ID = :userId";
+        return client.sql(sql)
+                .bind("userId", userId)
+                .map(this::mapRowToUser)
+                .all();
+    }
+
+    private User mapRowToUser(Row row) {
+        return User.builder()
+                .id(row.get("ID", Integer.class))
+                .login(row.get("LOGIN", String.class))
+                .name(row.get("NAME", String.class))
+                .email(row.get("EMAIL", String.class))
+                .birthday(row.get("BIRTHDAY", LocalDate.class))
+                .version(row.get("VERSION", Long.class))
+                .build();
+    }
+}
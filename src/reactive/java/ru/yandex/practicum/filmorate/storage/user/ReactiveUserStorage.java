@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.model.User;
+
+/**
+ * Неблокирующий аналог {@link UserStorage} для профиля reactive.
+ */
+public interface ReactiveUserStorage {
+    Mono<User> create(User user);
+
+    Mono<User> update(User user);
+
+    Flux<User> getAll();
+
+    Mono<User> getById(int id);
+
+    Mono<Void> saveFriendship(int requesterId, int responderId);
+
+    Mono<Void> deleteFriendship(int requesterId, int responderId);
+
+    Flux<User> getCommonFriends(int id, int otherId);
+
+    Flux<User> getUserFriends(int userId);
+}
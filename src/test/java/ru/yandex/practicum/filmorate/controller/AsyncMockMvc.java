@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+import org.springframework.test.web.servlet.ResultActions;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+
+/**
+ * Выполнение запросов к контроллерам, которые отвечают через {@link JdbcBulkhead} асинхронно.
+ */
+final class AsyncMockMvc {
+    private AsyncMockMvc() {
+    }
+
+    /**
+     * Выполняет запрос и, если обработка ушла в пул, дожидается ответа повторной асинхронной отправкой.
+     */
+    static ResultActions perform(MockMvc mockMvc, RequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        return result.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(result)) : actions;
+    }
+}
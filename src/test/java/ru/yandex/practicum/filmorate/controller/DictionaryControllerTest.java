@@ -6,16 +6,27 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.FilmorateApplication;
 
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+
 import static org.hamcrest.Matchers.greaterThan;
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -26,10 +37,12 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class DictionaryControllerTest {
     private final MockMvc mockMvc;
+    private final JdbcTemplate jdbcTemplate;
 
     @Autowired
-    public DictionaryControllerTest(MockMvc mockMvc) {
+    public DictionaryControllerTest(MockMvc mockMvc, JdbcTemplate jdbcTemplate) {
         this.mockMvc = mockMvc;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @Test
@@ -69,4 +82,64 @@ class DictionaryControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", Matchers.equalTo(1)));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getCachedResponse() throws Exception {
+        MockHttpServletResponse plain = mockMvc.perform(get("/genres"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=86400, public"))
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse();
+        MockHttpServletResponse gzipped = mockMvc.perform(get("/genres").header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn()
+                .getResponse();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getContentAsByteArray()))) {
+            assertArrayEquals(plain.getContentAsByteArray(), in.readAllBytes());
+        }
+
+        // gzip с нулевым весом запрещен
+        mockMvc.perform(get("/genres").header(HttpHeaders.ACCEPT_ENCODING, "deflate, gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING));
+
+        mockMvc.perform(get("/genres").header(HttpHeaders.IF_NONE_MATCH, plain.getHeader(HttpHeaders.ETAG)))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/genres/100"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void acceptsGzip() {
+        assertTrue(DictionaryController.acceptsGzip("gzip, deflate"));
+        assertTrue(DictionaryController.acceptsGzip("deflate;q=1.0, GZIP;q=0.5"));
+        assertTrue(DictionaryController.acceptsGzip("br, *"));
+        assertFalse(DictionaryController.acceptsGzip(null));
+        assertFalse(DictionaryController.acceptsGzip("gzip;q=0"));
+        assertFalse(DictionaryController.acceptsGzip("gzip; q=0.000, deflate"));
+        assertFalse(DictionaryController.acceptsGzip("*, gzip;q=0"));
+        assertFalse(DictionaryController.acceptsGzip("identity"));
+    }
+
+    @Test
+    void refreshInvalidatesCachedResponse() throws Exception {
+        String etag = mockMvc.perform(get("/genres/1"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        String name = jdbcTemplate.queryForObject("SELECT NAME FROM GENRES WHERE ID = 1", String.class);
+        jdbcTemplate.update("UPDATE GENRES SET NAME = ? WHERE ID = 1", "Changed");
+        try {
+            mockMvc.perform(post("/admin/dictionaries/refresh")).andExpect(status().isNoContent());
+            mockMvc.perform(get("/genres/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.name", Matchers.equalTo("Changed")));
+        } finally {
+            jdbcTemplate.update("UPDATE GENRES SET NAME = ? WHERE ID = 1", name);
+            mockMvc.perform(post("/admin/dictionaries/refresh")).andExpect(status().isNoContent());
+        }
+    }
+}
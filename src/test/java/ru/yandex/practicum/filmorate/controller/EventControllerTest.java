@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, classes = FilmorateApplication.class)
+@AutoConfigureMockMvc
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class EventControllerTest {
+    private static final long TIMEOUT_MS = 5000;
+    private final MockMvc mockMvc;
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private User user;
+    private Film film;
+
+    @Autowired
+    public EventControllerTest(MockMvc mockMvc, FilmStorage filmStorage, UserStorage userStorage) {
+        this.mockMvc = mockMvc;
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+    }
+
+    @BeforeEach
+    void setUp() {
+        user = userStorage.create(User.builder()
+                                          .login("user_login")
+                                          .name("User Name")
+                                          .email("user@mail.ru")
+                                          .birthday(LocalDate.of(1980, 12, 1))
+                                          .build());
+        film = filmStorage.create(Film.builder()
+                                          .name("Film Name")
+                                          .description("Film Description")
+                                          .releaseDate(LocalDate.of(1980, 12, 1))
+                                          .duration(180)
+                                          .mpa(MpaRating.builder().id(1).build())
+                                          .build());
+    }
+
+    @Test
+    void streamsExistingAndNewEvents() throws Exception {
+        MockHttpServletResponse response = subscribe("/events?since=0");
+        awaitContent(response, "event:USER_CREATED");
+        awaitContent(response, "id:2\nevent:FILM_CREATED");
+
+        filmStorage.saveLike(film.getId(), user.getId());
+        awaitContent(response, "id:3\nevent:LIKE_ADDED");
+        // событие пишется в ответ частями, данные могут прийти позже заголовка
+        awaitContent(response, "\"relatedId\":" + user.getId());
+
+        filmStorage.deleteLike(film.getId(), user.getId());
+        filmStorage.deleteLike(film.getId(), user.getId());
+        awaitContent(response, "id:4\nevent:LIKE_REMOVED");
+        Thread.sleep(200);
+        assertFalse(response.getContentAsString().contains("id:5"));
+    }
+
+    @Test
+    void resumesAfterLastEventId() throws Exception {
+        userStorage.update(user);
+        MockHttpServletResponse response = subscribe("/events?since=0", "2");
+        awaitContent(response, "id:3\nevent:USER_UPDATED");
+        assertFalse(response.getContentAsString().contains("FILM_CREATED"));
+    }
+
+    private MockHttpServletResponse subscribe(String url, String... lastEventId) throws Exception {
+        MvcResult result = mockMvc.perform(lastEventId.length == 0 ? get(url) : get(url).header("Last-Event-ID",
+                                                                                                  lastEventId[0]))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        return result.getResponse();
+    }
+
+    private void awaitContent(MockHttpServletResponse response, String expected) throws Exception {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MS;
+        while (!response.getContentAsString().contains(expected)) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Не дождались " + expected + ", получено: " + response.getContentAsString());
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.QueryCounter;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.DictionaryCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.time.LocalDate;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.AsyncMockMvc.perform;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, classes = FilmorateApplication.class)
+@AutoConfigureMockMvc
+@Import(FilmControllerQueryCountTest.Config.class)
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class FilmControllerQueryCountTest {
+    private final MockMvc mockMvc;
+    private final QueryCounter queryCounter;
+    private final FilmStorage filmStorage;
+    private final DictionaryCache dictionaryCache;
+    private final FilmService filmService;
+
+    @Autowired
+    public FilmControllerQueryCountTest(MockMvc mockMvc, QueryCounter queryCounter, FilmStorage filmStorage,
+                                        DictionaryCache dictionaryCache, FilmService filmService) {
+        this.mockMvc = mockMvc;
+        this.queryCounter = queryCounter;
+        this.filmStorage = filmStorage;
+        this.dictionaryCache = dictionaryCache;
+        this.filmService = filmService;
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 5; i++) {
+            Film film = Film.builder()
+                    .name("Film Name" + i)
+                    .description("Film Description" + i)
+                    .releaseDate(LocalDate.of(1980, 12, 1))
+                    .duration(180)
+                    .mpa(MpaRating.builder().id(i % 5 + 1).build())
+                    .build();
+            film.addGenre(dictionaryCache.getGenreById(i % 6 + 1).orElseThrow());
+            film.addGenre(dictionaryCache.getGenreById((i + 1) % 6 + 1).orElseThrow());
+            filmStorage.create(film);
+        }
+        filmService.reload();
+        queryCounter.reset();
+    }
+
+    @Test
+    void getAllQueryCount() throws Exception {
+        perform(mockMvc, get("/films").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        // фильмы и связи с жанрами, справочники берутся из кэша
+        assertEquals(2, queryCounter.get());
+    }
+
+    @Test
+    void streamAllQueryCount() throws Exception {
+        MvcResult result = mockMvc.perform(get("/films").accept(FilmController.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String content = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = content.split("\n");
+        assertEquals(5, lines.length);
+        assertTrue(lines[0].startsWith("{\"id\":1,"));
+        // курсор по фильмам и курсор по связям с жанрами
+        assertEquals(2, queryCounter.get());
+    }
+
+    @Test
+    void getByIdQueryCount() throws Exception {
+        perform(mockMvc, get("/films/1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        assertEquals(2, queryCounter.get());
+    }
+
+    @Test
+    void getByIdsQueryCount() throws Exception {
+        perform(mockMvc, get("/films").param("ids", "4,100,2,4").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id").value(4))
+                .andExpect(jsonPath("$.items[0].genres", hasSize(2)))
+                .andExpect(jsonPath("$.items[1].id").value(2))
+                .andExpect(jsonPath("$.missingIds", hasSize(1)))
+                .andExpect(jsonPath("$.missingIds[0]").value(100));
+        // фильмы одним IN и связи с жанрами
+        assertEquals(2, queryCounter.get());
+    }
+
+    @Test
+    void conditionalGetQueryCount() throws Exception {
+        String filmETag = perform(mockMvc, get("/films/1").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        String popularETag = perform(mockMvc, get("/films/popular").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        queryCounter.reset();
+
+        // неизменившийся фильм проверяется одним запросом версии, рейтинг - без обращения к БД
+        perform(mockMvc, get("/films/1").header(HttpHeaders.IF_NONE_MATCH, filmETag))
+                .andExpect(status().isNotModified());
+        assertEquals(1, queryCounter.get());
+        perform(mockMvc, get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, popularETag))
+                .andExpect(status().isNotModified());
+        assertEquals(1, queryCounter.get());
+    }
+
+    @Test
+    void getTopPopularQueryCount() throws Exception {
+        perform(mockMvc, get("/films/popular").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(5)))
+                .andExpect(jsonPath("$[0].genres", hasSize(2)));
+        // порядок рейтинга берется из памяти, сами фильмы - одним запросом фильмов и одним запросом жанров
+        assertEquals(2, queryCounter.get());
+    }
+
+    @Test
+    void dictionariesQueryCount() throws Exception {
+        perform(mockMvc, get("/genres").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        perform(mockMvc, get("/mpa/1").accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
+        assertEquals(0, queryCounter.get());
+    }
+
+    @TestConfiguration
+    static class Config {
+        @Bean
+        static QueryCounter queryCounter() {
+            return new QueryCounter();
+        }
+    }
+}
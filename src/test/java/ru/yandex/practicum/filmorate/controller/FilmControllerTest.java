@@ -9,32 +9,40 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.FilmorateApplication;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
 import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.AsyncMockMvc.perform;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.MOCK, classes = FilmorateApplication.class)
 @AutoConfigureMockMvc
 @Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
-@Transactional
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class FilmControllerTest {
     private static final ObjectMapper mapper = new ObjectMapper();
@@ -47,7 +55,8 @@ class FilmControllerTest {
     }
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
+        perform(mockMvc, post("/admin/indexes/reload")).andExpect(status().isNoContent());
         film = Film.builder()
                 .name("Film Name")
                 .description("Film Description")
@@ -61,7 +70,7 @@ class FilmControllerTest {
     @Test
     public void testPostOk() throws Exception {
         String json = mapper.writeValueAsString(film);
-        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, post("/films").contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .content(json)
                                 .accept(MediaType.APPLICATION_JSON))
@@ -74,19 +83,59 @@ class FilmControllerTest {
     public void testPostError() throws Exception {
         film.setId(1);
         String json = mapper.writeValueAsString(film);
-        mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, post("/films").contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .content(json)
                                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isBadRequest());
     }
 
+    @Test
+    public void testPostBatch() throws Exception {
+        List<Film> films = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Film batchFilm = Film.builder()
+                    .name("Film Name" + i)
+                    .description("Film Description" + i)
+                    .releaseDate(LocalDate.of(1980, 12, 1))
+                    .duration(180)
+                    .mpa(MpaRating.builder().id(1).build())
+                    .build();
+            batchFilm.addGenre(Genre.builder().id(i + 1).build());
+            films.add(batchFilm);
+        }
+        perform(mockMvc, post("/films/batch").contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(films))
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$", hasSize(3)))
+                .andExpect(jsonPath("$[0].id", Matchers.equalTo(1)))
+                .andExpect(jsonPath("$[2].id", Matchers.equalTo(3)))
+                .andExpect(jsonPath("$[2].name", Matchers.equalTo("Film Name2")))
+                .andExpect(jsonPath("$[2].genres[0].id", Matchers.equalTo(3)))
+                .andExpect(jsonPath("$[2].mpa.name", Matchers.notNullValue()));
+
+        perform(mockMvc, get("/films/2").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.genres[0].id", Matchers.equalTo(2)));
+
+        // один некорректный фильм отклоняет весь пакет
+        films.forEach(f -> f.getGenres().clear());
+        films.get(1).setName("");
+        perform(mockMvc, post("/films/batch").contentType(MediaType.APPLICATION_JSON)
+                                .characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(films))
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     public void testPutOk() throws Exception {
         film = postFilm(film);
 
         film.setName("Updated Name");
         String jsonRq = mapper.writeValueAsString(film);
-        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, put("/films").contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .content(jsonRq)
                                 .accept(MediaType.APPLICATION_JSON))
@@ -107,7 +156,7 @@ class FilmControllerTest {
                 .mpa(MpaRating.builder().id(1).build())
                 .build();
         String jsonRq = mapper.writeValueAsString(film);
-        mockMvc.perform(put("/films").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, put("/films").contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .content(jsonRq)
                                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotFound());
@@ -117,7 +166,7 @@ class FilmControllerTest {
     void getAll() throws Exception {
         film = postFilm(film);
 
-        mockMvc.perform(get("/films").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get("/films").contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -125,13 +174,102 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$", hasSize(1)))
                 .andExpect(jsonPath("$[0].id", Matchers.equalTo(film.getId())))
                 .andExpect(jsonPath("$[0].name", Matchers.equalTo(film.getName())));
+
+        // без заголовка Accept по-прежнему возвращается JSON-массив
+        perform(mockMvc, get("/films"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    void getPage() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            film = Film.builder()
+                    .name("Film Name" + i)
+                    .description("Film Description" + i)
+                    .releaseDate(LocalDate.of(1980, 12, 1))
+                    .duration(180)
+                    .mpa(MpaRating.builder().id(1).build())
+                    .build();
+            postFilm(film);
+        }
+
+        String jsonRs = perform(mockMvc, get("/films").param("limit", "3").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(3)))
+                .andExpect(jsonPath("$.items[0].id", Matchers.equalTo(1)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.notNullValue()))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String cursor = mapper.readTree(jsonRs).get("nextCursor").asText();
+
+        perform(mockMvc, get("/films").param("limit", "3").param("after", cursor).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", Matchers.equalTo(4)))
+                .andExpect(jsonPath("$.nextCursor", Matchers.nullValue()));
+
+        // некорректный курсор и размер страницы
+        perform(mockMvc, get("/films").param("limit", "3").param("after", "garbage").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, get("/films").param("limit", "0").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void conditionalGet() throws Exception {
+        Film created = postFilm(film);
+        String etag = perform(mockMvc, get("/films/" + created.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+        String listETag = perform(mockMvc, get("/films").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        perform(mockMvc, get("/films/" + created.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        perform(mockMvc, get("/films").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isNotModified());
+
+        created.setName("New Name");
+        perform(mockMvc, put("/films").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(created)))
+                .andExpect(status().isOk());
+
+        perform(mockMvc, get("/films/" + created.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Matchers.equalTo("New Name")))
+                .andExpect(jsonPath("$.version").doesNotExist());
+        perform(mockMvc, get("/films").header(HttpHeaders.IF_NONE_MATCH, listETag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void search() throws Exception {
+        film.setName("Space Odyssey");
+        postFilm(film);
+
+        perform(mockMvc, get("/films/search").param("q", "odyssey").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].name", Matchers.equalTo("Space Odyssey")));
+        perform(mockMvc, get("/films/search").param("q", " ").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void getById() throws Exception {
         film = postFilm(film);
 
-        mockMvc.perform(get("/films/" + film.getId()).contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get("/films/" + film.getId()).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -150,27 +288,27 @@ class FilmControllerTest {
                 .build();
         user = postUser(user);
 
-        mockMvc.perform(put(String.format("/films/%d/like/%d", film.getId(), user.getId())).contentType(
+        perform(mockMvc, put(String.format("/films/%d/like/%d", film.getId(), user.getId())).contentType(
                         MediaType.APPLICATION_JSON).characterEncoding("utf-8").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn()
                 .getResponse()
                 .getContentAsString();
 
-        mockMvc.perform(put(String.format("/films/%d/like/%d",
+        perform(mockMvc, put(String.format("/films/%d/like/%d",
                                           100,
                                           user.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON)).andExpect(status().isNotFound());
 
-        mockMvc.perform(delete(String.format("/films/%d/like/%d", film.getId(), user.getId())).contentType(
+        perform(mockMvc, delete(String.format("/films/%d/like/%d", film.getId(), user.getId())).contentType(
                         MediaType.APPLICATION_JSON).characterEncoding("utf-8").accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andReturn()
                 .getResponse()
                 .getContentAsString();
 
-        mockMvc.perform(delete(String.format("/films/%d/like/%d",
+        perform(mockMvc, delete(String.format("/films/%d/like/%d",
                                              100,
                                              user.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
@@ -200,13 +338,13 @@ class FilmControllerTest {
             users.add(postUser(user));
 
             for (int i = 1; i < users.size(); i++) {
-                mockMvc.perform(put(String.format("/films/%d/like/%d", film.getId(), users.get(i).getId())).contentType(
+                perform(mockMvc, put(String.format("/films/%d/like/%d", film.getId(), users.get(i).getId())).contentType(
                         MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andExpect(status().isOk());
             }
         }
 
         // запрос без количества
-        mockMvc.perform(get("/films/popular").contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get("/films/popular").contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
@@ -215,7 +353,7 @@ class FilmControllerTest {
 
 
         // запрос с количеством
-        mockMvc.perform(get("/films/popular").param("count", "5")
+        perform(mockMvc, get("/films/popular").param("count", "5")
                                 .contentType(MediaType.APPLICATION_JSON)
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -224,9 +362,73 @@ class FilmControllerTest {
                 .andExpect(jsonPath("$[0].id", Matchers.equalTo(12)));
     }
 
+    @Test
+    public void testStreamTopPopular() throws Exception {
+        Film first = postFilm(film);
+        Film second = postFilm(film);
+        User user = postUser(User.builder()
+                                     .login("user_login")
+                                     .name("User Name")
+                                     .email("user@mail.ru")
+                                     .birthday(LocalDate.of(1980, 12, 1))
+                                     .build());
+        User other = postUser(User.builder()
+                                      .login("other_login")
+                                      .name("Other Name")
+                                      .email("other@mail.ru")
+                                      .birthday(LocalDate.of(1980, 12, 1))
+                                      .build());
+
+        MockHttpServletResponse response = mockMvc.perform(get("/films/popular/stream").param("count", "2"))
+                .andExpect(request().asyncStarted())
+                .andReturn()
+                .getResponse();
+        awaitEvents(response, 1);
+        assertTrue(response.getContentAsString().contains("data:[{\"id\":" + first.getId()));
+
+        perform(mockMvc, put(String.format("/films/%d/like/%d", second.getId(), user.getId()))).andExpect(status().isOk());
+        awaitEvents(response, 2);
+        assertTrue(response.getContentAsString().contains("data:[{\"id\":" + second.getId()));
+
+        // порядок не изменился - новый список не отправляется
+        perform(mockMvc, put(String.format("/films/%d/like/%d", second.getId(), other.getId()))).andExpect(status().isOk());
+        Thread.sleep(1500);
+        assertEquals(2, countEvents(response));
+
+        // порядок прежний, но изменилось название фильма из списка
+        first.setName("New Name");
+        perform(mockMvc, put("/films").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+                        .content(mapper.writeValueAsString(first)))
+                .andExpect(status().isOk());
+        awaitEvents(response, 3);
+        assertTrue(response.getContentAsString().contains("\"name\":\"New Name\""));
+
+        perform(mockMvc, get("/films/popular/stream").param("count", String.valueOf(FilmService.MAX_POPULAR_COUNT + 1)))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, get("/films/popular").param("count", String.valueOf(FilmService.MAX_POPULAR_COUNT + 1)))
+                .andExpect(status().isBadRequest());
+    }
+
+    private void awaitEvents(MockHttpServletResponse response, int count) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (countEvents(response) < count) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Не дождались " + count + " списков, получено: " + response.getContentAsString());
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Событие пишется в ответ частями, поэтому считаются только дописанные - с пустой строкой в конце.
+     */
+    private int countEvents(MockHttpServletResponse response) throws Exception {
+        return response.getContentAsString().split("\n\n", -1).length - 1;
+    }
+
     private Film postFilm(Film film) throws Exception {
         String jsonRq = mapper.writeValueAsString(film);
-        String jsonRs = mockMvc.perform(post("/films").contentType(MediaType.APPLICATION_JSON)
+        String jsonRs = perform(mockMvc, post("/films").contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(jsonRq)
                                                 .accept(MediaType.APPLICATION_JSON))
@@ -240,7 +442,7 @@ class FilmControllerTest {
 
     private User postUser(User user) throws Exception {
         String jsonRq = mapper.writeValueAsString(user);
-        String jsonRs = mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON)
+        String jsonRs = perform(mockMvc, post("/users").contentType(MediaType.APPLICATION_JSON)
                                                 .characterEncoding("utf-8")
                                                 .content(jsonRq)
                                                 .accept(MediaType.APPLICATION_JSON))
@@ -251,4 +453,4 @@ class FilmControllerTest {
         user = mapper.readValue(jsonRs, User.class);
         return user;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JdbcBulkheadTest {
+    @Test
+    void rejectsWhenQueueIsFull() throws Exception {
+        JdbcBulkhead bulkhead = new JdbcBulkhead(1, 1, 1, 1);
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        bulkhead.bindTo(registry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            CompletableFuture<Integer> running = bulkhead.read(() -> {
+                started.countDown();
+                await(release);
+                return 1;
+            });
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+            CompletableFuture<Integer> queued = bulkhead.read(() -> 2);
+
+            assertEquals(1, registry.get("filmorate.bulkhead.queue.size").tag("pool", "read").gauge().value());
+            assertThrows(RejectedExecutionException.class, () -> bulkhead.read(() -> 3));
+            // пул записи не зависит от занятого пула чтения
+            assertEquals(4, bulkhead.write(() -> 4).get(5, TimeUnit.SECONDS));
+
+            release.countDown();
+            assertEquals(1, running.get(5, TimeUnit.SECONDS));
+            assertEquals(2, queued.get(5, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            bulkhead.shutdown();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
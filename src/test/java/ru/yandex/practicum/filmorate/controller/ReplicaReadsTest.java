@@ -0,0 +1,92 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+
+import javax.servlet.http.Cookie;
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.AsyncMockMvc.perform;
+
+/**
+ * Вторая H2 в памяти играет роль реплики: пользователь есть только в ней, поэтому по ответам видно,
+ * куда ушел запрос.
+ */
+@SpringBootTest(
+        webEnvironment = SpringBootTest.WebEnvironment.MOCK,
+        classes = FilmorateApplication.class,
+        properties = {
+                "filmorate.datasource.replicas.enabled=true",
+                "filmorate.datasource.replicas.urls=" + ReplicaReadsTest.REPLICA_URL
+        })
+@AutoConfigureMockMvc
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class ReplicaReadsTest {
+    static final String REPLICA_URL = "jdbc:h2:mem:filmorate-replica;NON_KEYWORDS=user;DB_CLOSE_DELAY=-1";
+    private final MockMvc mockMvc;
+
+    @Autowired
+    public ReplicaReadsTest(MockMvc mockMvc) {
+        this.mockMvc = mockMvc;
+    }
+
+    @BeforeEach
+    void setUpReplica() {
+        DriverManagerDataSource replica = new DriverManagerDataSource(REPLICA_URL, "sa", "password");
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(replica);
+        new JdbcTemplate(replica).update("INSERT INTO USERS(ID, LOGIN, NAME, EMAIL, BIRTHDAY) VALUES(?, ?, ?, ?, ?)",
+                                         1, "replica_user", "Replica", "replica@mail.ru", Date.valueOf(LocalDate.of(1990, 1, 1)));
+    }
+
+    @Test
+    public void readsGoToReplicaAndWritesToPrimary() throws Exception {
+        perform(mockMvc, get("/users/1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.login").value("replica_user"));
+
+        String json = "{\"id\":1,\"login\":\"replica_user\",\"email\":\"replica@mail.ru\",\"birthday\":\"1990-01-01\"}";
+        perform(mockMvc, put("/users").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    public void readsAfterWriteGoToPrimaryForClientWithCookie() throws Exception {
+        String json = "{\"login\":\"primary_user\",\"email\":\"primary@mail.ru\",\"birthday\":\"1990-01-01\"}";
+        MvcResult result = perform(mockMvc, post("/users").contentType(MediaType.APPLICATION_JSON).content(json))
+                .andExpect(status().isCreated())
+                .andReturn();
+        Cookie cookie = result.getResponse().getCookie(RoutingContextFilter.PRIMARY_UNTIL_COOKIE);
+        assertNotNull(cookie);
+
+        perform(mockMvc, get("/users/1").cookie(cookie))
+                .andExpect(jsonPath("$.login").value("primary_user"));
+        // другой клиент по-прежнему читает с реплики
+        perform(mockMvc, get("/users/1"))
+                .andExpect(jsonPath("$.login").value("replica_user"));
+        // срок закрепления истек
+        perform(mockMvc, get("/users/1").cookie(new Cookie(RoutingContextFilter.PRIMARY_UNTIL_COOKIE,
+                                                  String.valueOf(System.currentTimeMillis() - 1))))
+                .andExpect(jsonPath("$.login").value("replica_user"));
+    }
+}
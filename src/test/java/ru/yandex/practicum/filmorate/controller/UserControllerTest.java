@@ -9,10 +9,10 @@ import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.web.servlet.MockMvc;
-import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.FilmorateApplication;
 import ru.yandex.practicum.filmorate.model.User;
 
@@ -26,13 +26,13 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+import static ru.yandex.practicum.filmorate.controller.AsyncMockMvc.perform;
 
 @SpringBootTest(
         webEnvironment = SpringBootTest.WebEnvironment.MOCK,
         classes = FilmorateApplication.class)
 @AutoConfigureMockMvc
 @Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
-@Transactional
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class UserControllerTest {
     private static final ObjectMapper mapper = new ObjectMapper();
@@ -45,7 +45,8 @@ class UserControllerTest {
     }
 
     @BeforeEach
-    void setUp() {
+    void setUp() throws Exception {
+        perform(mockMvc, post("/admin/indexes/reload")).andExpect(status().isNoContent());
         user = User.builder()
                 .login("user_login")
                 .name("User Name")
@@ -58,7 +59,7 @@ class UserControllerTest {
     @Test
     public void testPostOk() throws Exception {
         String json = mapper.writeValueAsString(user);
-        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .content(json).accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isCreated())
                 .andExpect(jsonPath("$.id", Matchers.notNullValue()))
@@ -69,7 +70,7 @@ class UserControllerTest {
     public void testPostError() throws Exception {
         user.setId(1);
         String json = mapper.writeValueAsString(user);
-        mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .content(json).accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().is4xxClientError());
     }
@@ -80,7 +81,7 @@ class UserControllerTest {
 
         user.setName("Updated Name");
         String jsonRq = mapper.writeValueAsString(user);
-        mockMvc.perform(put("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, put("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .content(jsonRq).accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", Matchers.notNullValue()))
@@ -100,7 +101,7 @@ class UserControllerTest {
                 .build();
 
         String jsonRq = mapper.writeValueAsString(user);
-        mockMvc.perform(put("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, put("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .content(jsonRq).accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
     }
@@ -109,7 +110,7 @@ class UserControllerTest {
     void getAll() throws Exception {
         user = postUser(user);
 
-        mockMvc.perform(get("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, get("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
@@ -118,11 +119,35 @@ class UserControllerTest {
                 .andExpect(jsonPath("$[0].name", Matchers.equalTo(user.getName())));
     }
 
+    @Test
+    void getByIds() throws Exception {
+        user = postUser(user);
+        User friend = postUser(User.builder()
+                                       .login("friend_login")
+                                       .name("Friend Name")
+                                       .email("friend@mail.ru")
+                                       .birthday(LocalDate.of(1980, 12, 1))
+                                       .build());
+
+        perform(mockMvc, get("/users").param("ids", friend.getId() + ",100," + user.getId())
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items", hasSize(2)))
+                .andExpect(jsonPath("$.items[0].id", Matchers.equalTo(friend.getId())))
+                .andExpect(jsonPath("$.items[1].id", Matchers.equalTo(user.getId())))
+                .andExpect(jsonPath("$.missingIds", Matchers.contains(100)));
+
+        perform(mockMvc, get("/users").param("ids", "1,abc").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, get("/users").param("ids", "").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void getById() throws Exception {
         user = postUser(user);
 
-        mockMvc.perform(get("/users/" + user.getId()).contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+        perform(mockMvc, get("/users/" + user.getId()).contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id", Matchers.equalTo(user.getId())))
@@ -141,7 +166,7 @@ class UserControllerTest {
         user = postUser(user);
         friend = postUser(friend);
 
-        mockMvc.perform(put(String.format("/users/%d/friends/%d", user.getId(), friend.getId())).contentType(
+        perform(mockMvc, put(String.format("/users/%d/friends/%d", user.getId(), friend.getId())).contentType(
                                 MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -149,7 +174,7 @@ class UserControllerTest {
                 .getResponse()
                 .getContentAsString();
 
-        mockMvc.perform(delete(String.format("/users/%d/friends/%d", user.getId(), friend.getId())).contentType(
+        perform(mockMvc, delete(String.format("/users/%d/friends/%d", user.getId(), friend.getId())).contentType(
                                 MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -163,13 +188,13 @@ class UserControllerTest {
 
         user = postUser(user);
 
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user.getId(),
                                           -1)).contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
 
-        mockMvc.perform(delete(String.format("/users/%d/friends/%d",
+        perform(mockMvc, delete(String.format("/users/%d/friends/%d",
                                              user.getId(),
                                              -1)).contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
@@ -195,27 +220,27 @@ class UserControllerTest {
         friend1 = postUser(friend1);
         friend2 = postUser(friend2);
 
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user.getId(),
                                           friend1.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user.getId(),
                                           friend2.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
-        mockMvc.perform(get(String.format("/users/%d/friends", user.getId())).contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get(String.format("/users/%d/friends", user.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$", hasSize(2)));
 
-        mockMvc.perform(get(String.format("/users/%d/friends", -1)).contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get(String.format("/users/%d/friends", -1)).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isNotFound());
@@ -255,26 +280,26 @@ class UserControllerTest {
         friend2 = postUser(friend2);
 
         // добавляем друзей
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user1.getId(),
                                           friend1.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user1.getId(),
                                           friend2.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
 
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user2.getId(),
                                           friend1.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk());
-        mockMvc.perform(put(String.format("/users/%d/friends/%d",
+        perform(mockMvc, put(String.format("/users/%d/friends/%d",
                                           user2.getId(),
                                           friend2.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
@@ -282,7 +307,7 @@ class UserControllerTest {
                 .andExpect(status().isOk());
 
         // загружаем обновленных друзей с сервера
-        mockMvc.perform(get("/users/" + friend1.getId()).contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get("/users/" + friend1.getId()).contentType(MediaType.APPLICATION_JSON)
                                          .characterEncoding("utf-8")
                                          .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -291,7 +316,7 @@ class UserControllerTest {
                 .getContentAsString();
         //mapper.readValue(jsonRs, User.class);
 
-        mockMvc.perform(get("/users/" + friend2.getId()).contentType(MediaType.APPLICATION_JSON)
+        perform(mockMvc, get("/users/" + friend2.getId()).contentType(MediaType.APPLICATION_JSON)
                                          .characterEncoding("utf-8")
                                          .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -300,7 +325,7 @@ class UserControllerTest {
                 .getContentAsString();
         //mapper.readValue(jsonRs, User.class);
 
-        mockMvc.perform(get(String.format("/users/%d/friends/common/%d", user1.getId(), user2.getId())).contentType(
+        perform(mockMvc, get(String.format("/users/%d/friends/common/%d", user1.getId(), user2.getId())).contentType(
                                 MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                 .accept(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
@@ -308,7 +333,7 @@ class UserControllerTest {
                 .getResponse()
                 .getContentAsString();
 
-        mockMvc.perform(get(String.format("/users/%d/friends/common/%d",
+        perform(mockMvc, get(String.format("/users/%d/friends/common/%d",
                                           user1.getId() + 10,
                                           user2.getId())).contentType(MediaType.APPLICATION_JSON)
                                 .characterEncoding("utf-8")
@@ -316,10 +341,57 @@ class UserControllerTest {
                 .andExpect(status().isNotFound());
     }
 
+    @Test
+    void getFriendSuggestions() throws Exception {
+        User user = postUser(User.builder()
+                                     .login("user_login")
+                                     .name("User Name")
+                                     .email("user@mail.ru")
+                                     .birthday(LocalDate.of(1980, 12, 1))
+                                     .build());
+
+        perform(mockMvc, get(String.format("/users/%d/friends/suggestions", user.getId()))
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(0)));
+        perform(mockMvc, get(String.format("/users/%d/friends/suggestions?limit=0", user.getId()))
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+        perform(mockMvc, get(String.format("/users/%d/friends/suggestions", user.getId() + 10))
+                                .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void conditionalGet() throws Exception {
+        User user = postUser(User.builder()
+                                     .login("user_login")
+                                     .name("User Name")
+                                     .email("user@mail.ru")
+                                     .birthday(LocalDate.of(1980, 12, 1))
+                                     .build());
+        String etag = perform(mockMvc, get("/users/" + user.getId()).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        perform(mockMvc, get("/users/" + user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        user.setName("New Name");
+        perform(mockMvc, put("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+                                .content(mapper.writeValueAsString(user)))
+                .andExpect(status().isOk());
+        perform(mockMvc, get("/users/" + user.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name", Matchers.equalTo("New Name")));
+    }
+
     private User postUser(User user) throws Exception {
         String jsonRq = mapper.writeValueAsString(user);
         String jsonRs =
-                mockMvc.perform(post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
+                perform(mockMvc, post("/users").contentType(MediaType.APPLICATION_JSON).characterEncoding("utf-8")
                                         .content(jsonRq).accept(MediaType.APPLICATION_JSON))
                         .andExpect(status().isCreated())
                         .andReturn()
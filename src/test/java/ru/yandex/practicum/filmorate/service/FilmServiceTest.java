@@ -5,19 +5,28 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
 import ru.yandex.practicum.filmorate.model.MpaRating;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 @SpringBootTest
@@ -27,17 +36,20 @@ import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TE
 class FilmServiceTest {
     private final UserStorage userStorage;
     private final FilmService service;
+    private final JdbcTemplate jdbcTemplate;
     private Film film;
     private User user;
 
     @Autowired
-    public FilmServiceTest(UserStorage userStorage, FilmService service) {
+    public FilmServiceTest(UserStorage userStorage, FilmService service, JdbcTemplate jdbcTemplate) {
         this.userStorage = userStorage;
         this.service = service;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     @BeforeEach
     void setUp() {
+        service.reload();
         film = Film.builder()
                 .name("Film Name")
                 .description("Film Description")
@@ -95,6 +107,24 @@ class FilmServiceTest {
         assertThrows(UnknownModelObjectException.class, () -> service.getById(film.getId() + 1));
     }
 
+    @Test
+    void testTopPopularWithGenres() {
+        film.addGenre(Genre.builder().id(2).build());
+        service.create(film);
+        userStorage.create(user);
+        service.setLike(film.getId(), user.getId());
+
+        Film topFilm = service.getTopPopular(1).get(0);
+        assertEquals(film.getId(), topFilm.getId());
+        assertEquals(1, topFilm.getLikesCount());
+        assertNotNull(topFilm.getGenres().iterator().next().getName());
+        assertEquals(service.getVersion(film.getId()), topFilm.getVersion());
+
+        service.reload();
+        assertEquals(topFilm, service.getTopPopular(1).get(0));
+        assertTrue(service.findLeaderboardMismatches().isEmpty());
+    }
+
     @Test
     void testAddLike() {
         service.create(film);
@@ -144,6 +174,8 @@ class FilmServiceTest {
                 //film.setLike(userId);
             }
         }
+        assertTrue(service.findLeaderboardMismatches().isEmpty());
+
         List<Film> topFilms = service.getTopPopular(1);
         assertEquals(1, topFilms.size());
         assertEquals(12, topFilms.get(0).getId());
@@ -153,4 +185,94 @@ class FilmServiceTest {
             assertEquals(12 - i, topFilms.get(i).getId());
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void testTrending() {
+        Film fresh = service.create(film);
+        Film old = service.create(Film.builder()
+                                          .name("Old Film")
+                                          .description("Film Description")
+                                          .releaseDate(LocalDate.of(1980, 12, 1))
+                                          .duration(180)
+                                          .mpa(MpaRating.builder().id(1).build())
+                                          .build());
+        User first = userStorage.create(user);
+        User second = userStorage.create(User.builder()
+                                                 .login("second_login")
+                                                 .email("second@mail.ru")
+                                                 .birthday(LocalDate.of(1980, 12, 1))
+                                                 .build());
+        service.setLike(fresh.getId(), first.getId());
+        Timestamp threeDaysAgo = Timestamp.from(Instant.now().minus(Duration.ofDays(3)));
+        for (User liker : List.of(first, second)) {
+            jdbcTemplate.update("INSERT INTO LIKES(USER_ID, FILM_ID, CREATED_AT) VALUES(?, ?, ?)",
+                                liker.getId(), old.getId(), threeDaysAgo);
+        }
+        Timestamp monthAgo = Timestamp.from(Instant.now().minus(Duration.ofDays(30)));
+        jdbcTemplate.update("INSERT INTO LIKES(USER_ID, FILM_ID, CREATED_AT) VALUES(?, ?, ?)",
+                            second.getId(), fresh.getId(), monthAgo);
+        service.reload();
+
+        assertEquals(List.of(fresh.getId()), ids(service.getTrending("24h", 10)));
+        assertEquals(List.of(old.getId(), fresh.getId()), ids(service.getTrending("7d", 10)));
+        assertEquals(List.of(old.getId()), ids(service.getTrending("7d", 1)));
+
+        service.deleteLike(old.getId(), second.getId());
+        service.deleteLike(fresh.getId(), second.getId());
+        assertEquals(List.of(fresh.getId(), old.getId()), ids(service.getTrending("7d", 10)));
+
+        assertThrows(IllegalArgumentException.class, () -> service.getTrending("1y", 10));
+        assertThrows(IllegalArgumentException.class, () -> service.getTrending("24h", 0));
+        assertThrows(IllegalArgumentException.class, () -> service.getTrending("24h", Integer.MAX_VALUE));
+    }
+
+    @Test
+    void testAutocomplete() {
+        List<Integer> ids = new ArrayList<>();
+        for (String name : List.of("Star Wars", "Stardust", "Alien", "star trek")) {
+            ids.add(service.create(Film.builder()
+                                           .name(name)
+                                           .description("Film Description")
+                                           .releaseDate(LocalDate.of(1980, 12, 1))
+                                           .duration(180)
+                                           .mpa(MpaRating.builder().id(1).build())
+                                           .build()).getId());
+        }
+        for (int i = 0; i < 2; i++) {
+            int userId = userStorage.create(User.builder()
+                                                    .login("user_login" + i)
+                                                    .name("User Name" + i)
+                                                    .email("user" + i + "@mail.ru")
+                                                    .birthday(LocalDate.of(1980, 12, 1))
+                                                    .build()).getId();
+            service.setLike(ids.get(3), userId);
+        }
+        service.setLike(ids.get(1), 1);
+
+        // сначала самые популярные, при равенстве лайков - по id
+        assertEquals(List.of(ids.get(3), ids.get(1), ids.get(0)),
+                     service.autocomplete(" STAR", 10).stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(List.of(ids.get(3)),
+                     service.autocomplete("star", 1).stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(2, service.autocomplete("star", 1).get(0).getLikesCount());
+
+        Film renamed = service.getById(ids.get(3));
+        renamed.setName("Alien 2");
+        service.update(renamed);
+        assertEquals(List.of(ids.get(1), ids.get(0)),
+                     service.autocomplete("star", 10).stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(2, service.autocomplete("alien", 10).size());
+
+        // после перезагрузки индекс названий строится заново
+        service.reload();
+        assertEquals(List.of(ids.get(1), ids.get(0)),
+                     service.autocomplete("star", 10).stream().map(Film::getId).collect(Collectors.toList()));
+        assertEquals(List.of(ids.get(3), ids.get(2)),
+                     service.autocomplete("ALIEN", 10).stream().map(Film::getId).collect(Collectors.toList()));
+        assertThrows(IllegalArgumentException.class, () -> service.autocomplete("", 10));
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,61 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.storage.film.HourlyLikes;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FilmTrendingTest {
+    private static final Instant START = Instant.parse("2024-03-01T12:30:00Z");
+    private FilmTrending trending;
+
+    @BeforeEach
+    void setUp() {
+        trending = new FilmTrending();
+        trending.reload(START, consumer -> {
+            consumer.accept(new HourlyLikes(1, START.minus(Duration.ofHours(30)), 5));
+            consumer.accept(new HourlyLikes(2, START.minus(Duration.ofHours(2)), 2));
+            consumer.accept(new HourlyLikes(3, START.minus(Duration.ofDays(8)), 100));
+        });
+    }
+
+    @Test
+    void countsOnlyLikesInsideWindow() {
+        assertEquals(List.of(2), trending.top(24, 10, START));
+        assertEquals(List.of(1, 2), trending.top(FilmTrending.SLICES, 10, START));
+        assertEquals(List.of(1), trending.top(FilmTrending.SLICES, 1, START));
+        // очередь размером с число фильмов, а не с count
+        assertEquals(List.of(1, 2), trending.top(FilmTrending.SLICES, Integer.MAX_VALUE, START));
+    }
+
+    @Test
+    void rotationExpiresOldSlices() {
+        trending.add(3, START, 1);
+        trending.add(2, START.minus(Duration.ofDays(10)), 50);
+
+        Instant later = START.plus(Duration.ofHours(23));
+        assertEquals(List.of(3), trending.top(24, 10, later));
+        assertEquals(List.of(1, 2, 3), trending.top(FilmTrending.SLICES, 10, later));
+
+        Instant nextWeek = START.plus(Duration.ofDays(6));
+        assertEquals(List.of(), trending.top(24, 10, nextWeek));
+        assertEquals(List.of(2, 3), trending.top(FilmTrending.SLICES, 10, nextWeek));
+
+        trending.rotate(START.plus(Duration.ofDays(30)));
+        assertEquals(List.of(), trending.top(FilmTrending.SLICES, 10, START.plus(Duration.ofDays(30))));
+    }
+
+    @Test
+    void removedLikesDecreaseCounters() {
+        trending.add(2, START.minus(Duration.ofHours(2)), -2);
+        trending.add(1, START.minus(Duration.ofHours(30)), -1);
+
+        assertEquals(List.of(), trending.top(24, 10, START));
+        assertEquals(List.of(1), trending.top(FilmTrending.SLICES, 10, START));
+    }
+}
@@ -0,0 +1,93 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest(properties = "filmorate.likes.reconciler.chunk-size=2")
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class LikesReconcilerTest {
+    private final LikesReconciler reconciler;
+    private final FilmService filmService;
+    private final UserStorage userStorage;
+    private final JdbcTemplate jdbcTemplate;
+    private Film film;
+
+    @Autowired
+    public LikesReconcilerTest(LikesReconciler reconciler, FilmService filmService, UserStorage userStorage,
+                               JdbcTemplate jdbcTemplate) {
+        this.reconciler = reconciler;
+        this.filmService = filmService;
+        this.userStorage = userStorage;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 0; i < 3; i++) {
+            film = filmService.create(Film.builder()
+                                              .name("Film " + i)
+                                              .description("Film Description")
+                                              .releaseDate(LocalDate.of(1980, 12, 1))
+                                              .duration(180)
+                                              .mpa(MpaRating.builder().id(1).build())
+                                              .build());
+        }
+        User user = userStorage.create(User.builder()
+                                               .login("user_login")
+                                               .name("User Name")
+                                               .email("user@mail.ru")
+                                               .birthday(LocalDate.of(1980, 12, 1))
+                                               .build());
+        filmService.setLike(film.getId(), user.getId());
+        jdbcTemplate.update("UPDATE FILMS SET LIKES_COUNT = 5 WHERE ID = ?", film.getId());
+        filmService.reload();
+    }
+
+    @Test
+    void dryRunReportsDriftWithoutFixing() {
+        LikesReconciliationReport report = reconciler.run(true);
+
+        assertTrue(report.isDryRun());
+        assertEquals(2, report.getChunks());
+        assertEquals(3, report.getFilmsChecked());
+        assertEquals(1, report.getFilmsDrifted());
+        assertEquals(0, report.getFilmsFixed());
+        assertEquals(4, report.getTotalDrift());
+        assertEquals(List.of(film.getId()), report.getDriftedFilmIds());
+        assertEquals(5, storedLikesCount());
+        assertEquals(report, reconciler.getLastReport().orElseThrow());
+    }
+
+    @Test
+    void runFixesDriftedCounters() {
+        LikesReconciliationReport report = reconciler.run(false);
+
+        assertEquals(1, report.getFilmsFixed());
+        assertEquals(1, storedLikesCount());
+        assertTrue(filmService.findLeaderboardMismatches().isEmpty());
+        assertEquals(0, reconciler.run(false).getFilmsDrifted());
+
+        // пропуски в идентификаторах не считаются проверенными фильмами
+        jdbcTemplate.update("DELETE FROM FILMS WHERE ID <> ?", film.getId());
+        assertEquals(1, reconciler.run(true).getFilmsChecked());
+    }
+
+    private int storedLikesCount() {
+        return jdbcTemplate.queryForObject("SELECT LIKES_COUNT FROM FILMS WHERE ID = ?", Integer.class, film.getId());
+    }
+}
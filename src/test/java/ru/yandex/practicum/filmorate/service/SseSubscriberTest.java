@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SseSubscriberTest {
+    private final ExecutorService sender = Executors.newFixedThreadPool(2);
+
+    @AfterEach
+    void tearDown() {
+        sender.shutdownNow();
+    }
+
+    @Test
+    void slowSubscriberDoesNotDelayOthersAndIsDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch delivered = new CountDownLatch(3);
+        List<SseSubscriber> closed = new CopyOnWriteArrayList<>();
+        SseSubscriber slow = new SseSubscriber(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, 2, sender, closed::add);
+        SseSubscriber fast = new SseSubscriber(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) {
+                delivered.countDown();
+            }
+        }, 2, sender, closed::add);
+
+        // первое событие медленный подписчик отправляет, два следующих ждут в очереди
+        assertTrue(slow.offer(SseEmitter.event().data(1)));
+        assertTrue(fast.offer(SseEmitter.event().data(1)));
+        Thread.sleep(100);
+        for (int i = 2; i <= 3; i++) {
+            assertTrue(slow.offer(SseEmitter.event().data(i)));
+            assertTrue(fast.offer(SseEmitter.event().data(i)));
+        }
+        assertTrue(delivered.await(5, TimeUnit.SECONDS));
+
+        // очередь переполнена - подписчик отстал и отключается
+        assertFalse(slow.offer(SseEmitter.event().data(4)));
+        assertTrue(slow.isClosed());
+        assertFalse(fast.isClosed());
+        assertEquals(List.of(slow), closed);
+        release.countDown();
+    }
+
+    @Test
+    void failedSendClosesSubscriber() throws Exception {
+        AtomicInteger sent = new AtomicInteger();
+        CountDownLatch closed = new CountDownLatch(1);
+        SseSubscriber subscriber = new SseSubscriber(new SseEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                sent.incrementAndGet();
+                throw new IOException("Broken pipe");
+            }
+        }, 10, sender, s -> closed.countDown());
+
+        subscriber.offer(SseEmitter.event().data(1));
+        subscriber.offer(SseEmitter.event().data(2));
+        assertTrue(closed.await(5, TimeUnit.SECONDS));
+        assertTrue(subscriber.isClosed());
+        assertEquals(1, sent.get());
+        assertFalse(subscriber.offer(SseEmitter.event().data(3)));
+    }
+}
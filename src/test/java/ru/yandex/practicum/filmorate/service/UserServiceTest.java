@@ -9,6 +9,7 @@ import org.springframework.test.context.jdbc.Sql;
 import org.springframework.transaction.annotation.Transactional;
 import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -23,15 +24,18 @@ import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TE
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 class UserServiceTest {
     private final UserService service;
+    private final UserDbStorage storage;
     private User user;
 
     @Autowired
-    public UserServiceTest(UserService service) {
+    public UserServiceTest(UserService service, UserDbStorage storage) {
         this.service = service;
+        this.storage = storage;
     }
 
     @BeforeEach
     void setUp() {
+        storage.reload();
         user = User.builder()
                 .login("user_login")
                 .name("User Name")
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.model.DomainEvent;
+import ru.yandex.practicum.filmorate.model.EventType;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class EventDbStorageTest {
+    private final EventDbStorage storage;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    EventDbStorageTest(EventDbStorage storage, JdbcTemplate jdbcTemplate) {
+        this.storage = storage;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Test
+    void deleteOlderThan() {
+        for (int id = 1; id <= 3; id++) {
+            storage.append(jdbcTemplate, EventType.USER_CREATED, id, null);
+        }
+        jdbcTemplate.update("UPDATE OUTBOX SET CREATED_AT = DATEADD('DAY', -10, CREATED_AT) WHERE ID <= 2");
+        Instant weekAgo = Instant.now().minus(Duration.ofDays(7));
+
+        // запись 2 старая, но ее еще не получил подписчик с номером 1
+        assertEquals(1, storage.deleteOlderThan(1, weekAgo));
+        assertEquals(List.of(2L, 3L), offsets());
+        // запись 3 свежая
+        assertEquals(1, storage.deleteOlderThan(Long.MAX_VALUE, weekAgo));
+        assertEquals(List.of(3L), offsets());
+    }
+
+    private List<Long> offsets() {
+        return storage.getAfter(0, 100).stream().map(DomainEvent::getOffset).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,113 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReplicaRoutingDataSourceTest {
+    private ReplicaRoutingDataSource routing;
+    private JdbcTemplate jdbcTemplate;
+    private SwitchableDataSource replica;
+
+    @BeforeEach
+    void setUp() {
+        String suffix = UUID.randomUUID().toString();
+        DataSource primary = database("jdbc:h2:mem:primary-" + suffix + ";DB_CLOSE_DELAY=-1", "primary");
+        replica = new SwitchableDataSource(database("jdbc:h2:mem:replica-" + suffix + ";DB_CLOSE_DELAY=-1", "replica"));
+        routing = new ReplicaRoutingDataSource(primary, List.of(replica), 60_000, 1);
+        jdbcTemplate = new JdbcTemplate(routing);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        routing.close();
+    }
+
+    @Test
+    void readsGoToReplicaAndWritesToPrimary() {
+        RoutingContext context = RoutingContext.current();
+
+        assertEquals("primary", whoAmI());
+        assertEquals("replica", context.read(this::whoAmI));
+        assertEquals("primary", context.write(this::whoAmI));
+    }
+
+    @Test
+    void readsAfterWriteInSameRequestGoToPrimary() {
+        RoutingContext.begin(false);
+        try {
+            RoutingContext context = RoutingContext.current();
+            assertEquals("replica", context.read(this::whoAmI));
+            context.write(() -> jdbcTemplate.update("UPDATE ROLE SET NAME = 'primary'"));
+            assertEquals("primary", context.read(this::whoAmI));
+        } finally {
+            RoutingContext.end();
+        }
+        // следующий запрос снова читает с реплики
+        assertEquals("replica", RoutingContext.current().read(this::whoAmI));
+    }
+
+    @Test
+    void pinnedRequestReadsFromPrimary() {
+        RoutingContext.begin(true);
+        try {
+            assertEquals("primary", RoutingContext.current().read(this::whoAmI));
+        } finally {
+            RoutingContext.end();
+        }
+    }
+
+    @Test
+    void failsOverToPrimaryWhenReplicaIsDown() {
+        replica.down = true;
+
+        assertEquals("primary", RoutingContext.current().read(this::whoAmI));
+        assertEquals(0, routing.getHealthyReplicaCount());
+
+        replica.down = false;
+        assertEquals("primary", RoutingContext.current().read(this::whoAmI));
+        routing.checkHealth();
+        assertEquals(1, routing.getHealthyReplicaCount());
+        assertEquals("replica", RoutingContext.current().read(this::whoAmI));
+    }
+
+    private String whoAmI() {
+        return jdbcTemplate.queryForObject("SELECT NAME FROM ROLE", String.class);
+    }
+
+    private static DataSource database(String url, String role) {
+        DriverManagerDataSource dataSource = new DriverManagerDataSource(url);
+        JdbcTemplate template = new JdbcTemplate(dataSource);
+        template.execute("CREATE TABLE IF NOT EXISTS ROLE(NAME VARCHAR(10))");
+        template.update("DELETE FROM ROLE");
+        template.update("INSERT INTO ROLE(NAME) VALUES(?)", role);
+        return dataSource;
+    }
+
+    private static class SwitchableDataSource extends DelegatingDataSource {
+        private volatile boolean down;
+
+        private SwitchableDataSource(DataSource target) {
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("Реплика недоступна");
+            }
+            return super.getConnection();
+        }
+    }
+}
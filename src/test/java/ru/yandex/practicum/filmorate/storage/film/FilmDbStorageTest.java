@@ -1,13 +1,23 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
 
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 @SpringBootTest
@@ -15,12 +25,83 @@ import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TE
 class FilmDbStorageTest extends FilmStorageTest<FilmDbStorage> {
     @Autowired
     private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FilmDbStorage filmDbStorage;
+    @Autowired
+    private LikesIndex likesIndex;
+    @Autowired
+    private FilmSearchIndex searchIndex;
+    @Autowired
+    private EventDbStorage eventStorage;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
 
     @BeforeEach
     void setUp() {
         dictionaryStorage = new DictionaryDbStorage(jdbcTemplate);
-        storage = new FilmDbStorage(jdbcTemplate, dictionaryStorage);
-        userStorage = new UserDbStorage(jdbcTemplate);
+        likesIndex.reload();
+        searchIndex.reload();
+        storage = filmDbStorage;
+        userStorage = new UserDbStorage(jdbcTemplate, eventStorage);
         super.setUp();
     }
-}
\ No newline at end of file
+
+    @Test
+    void rolledBackLikeIsNotInIndex() {
+        int first = createFilm("First").getId();
+        int second = createFilm("Second").getId();
+        int userId = createUser("user").getId();
+        int otherId = createUser("other").getId();
+        storage.saveLike(first, userId);
+        storage.saveLike(second, userId);
+        storage.saveLike(first, otherId);
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            storage.saveLike(second, otherId);
+            status.setRollbackOnly();
+        });
+        assertArrayEquals(new int[]{second}, likesIndex.recommend(otherId, 10));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            storage.deleteLike(second, userId);
+            status.setRollbackOnly();
+        });
+        assertArrayEquals(new int[]{second}, likesIndex.recommend(otherId, 10));
+    }
+
+    @Test
+    void rolledBackUpdateIsNotInSearchIndex() {
+        Film film = createFilm("Первый");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            film.setName("Второй");
+            storage.update(film);
+            status.setRollbackOnly();
+        });
+        assertArrayEquals(new int[0], searchIndex.search("Второй", 10));
+        assertArrayEquals(new int[]{film.getId()}, searchIndex.search("Первый", 10));
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            createFilm("Третий");
+            status.setRollbackOnly();
+        });
+        assertArrayEquals(new int[0], searchIndex.search("Третий", 10));
+    }
+
+    private Film createFilm(String name) {
+        return storage.create(Film.builder()
+                                      .name(name)
+                                      .description("Film Description")
+                                      .releaseDate(LocalDate.of(1980, 12, 1))
+                                      .duration(180)
+                                      .mpa(MpaRating.builder().id(1).build())
+                                      .build());
+    }
+
+    private User createUser(String login) {
+        return userStorage.create(User.builder()
+                                          .login(login)
+                                          .email(login + "@mail.ru")
+                                          .birthday(LocalDate.of(1980, 12, 1))
+                                          .build());
+    }
+}
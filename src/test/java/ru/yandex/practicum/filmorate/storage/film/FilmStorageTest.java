@@ -2,13 +2,18 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import ru.yandex.practicum.filmorate.exception.UnknownModelObjectException;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.DictionaryDbStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -86,6 +91,25 @@ public abstract class FilmStorageTest<T extends FilmStorage> {
         assertNotEquals(0, storage.getAll().size());
     }
 
+    @Test
+    void streamAll() {
+        storage.create(film);
+        Film film1 = Film.builder()
+                .name("Film1 Name")
+                .description("Film1 Description")
+                .releaseDate(LocalDate.of(1980, 12, 1))
+                .duration(180)
+                .mpa(MpaRating.builder().id(1).name("G").build())
+                .build();
+        storage.create(film1);
+
+        List<Film> films = new ArrayList<>();
+        storage.streamAll(films::add);
+        assertEquals(List.of(film, film1), films);
+        assertEquals(film.getGenres(), films.get(0).getGenres());
+        assertTrue(films.get(1).getGenres().isEmpty());
+    }
+
     @Test
     void getById() {
         storage.create(film);
@@ -96,4 +120,135 @@ public abstract class FilmStorageTest<T extends FilmStorage> {
         optionalFilm = storage.getById(-100);
         assertTrue(optionalFilm.isEmpty());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getByIds() {
+        storage.create(film);
+        Film film1 = storage.create(Film.builder()
+                                            .name("Film1 Name")
+                                            .description("Film1 Description")
+                                            .releaseDate(LocalDate.of(1980, 12, 1))
+                                            .duration(180)
+                                            .mpa(MpaRating.builder().id(1).name("G").build())
+                                            .build());
+
+        List<Film> films = storage.getByIds(new int[]{film1.getId(), -100, film.getId()});
+        assertEquals(List.of(film1, film), films);
+        assertEquals(film.getGenres(), films.get(1).getGenres());
+        assertTrue(storage.getByIds(new int[0]).isEmpty());
+    }
+
+    @Test
+    void getRecommendations() {
+        List<Integer> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.create(User.builder()
+                                                 .login("user" + i)
+                                                 .name("User " + i)
+                                                 .email("user" + i + "@mail.ru")
+                                                 .birthday(LocalDate.of(1980, 12, 1))
+                                                 .build()).getId());
+        }
+        List<Integer> films = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            films.add(storage.create(Film.builder()
+                                             .name("Film " + i)
+                                             .description("Film Description")
+                                             .releaseDate(LocalDate.of(1980, 12, 1))
+                                             .duration(180)
+                                             .mpa(film.getMpa())
+                                             .build()).getId());
+        }
+        storage.saveLike(films.get(0), users.get(0));
+        storage.saveLike(films.get(1), users.get(0));
+        storage.saveLike(films.get(0), users.get(1));
+        storage.saveLike(films.get(1), users.get(1));
+        storage.saveLike(films.get(2), users.get(1));
+        storage.saveLike(films.get(0), users.get(2));
+        storage.saveLike(films.get(3), users.get(2));
+
+        // фильм похожего по двум лайкам пользователя идет раньше фильма пользователя с одним общим лайком
+        assertEquals(List.of(films.get(2), films.get(3)), ids(storage.getRecommendations(users.get(0), 10)));
+        assertEquals(List.of(films.get(2)), ids(storage.getRecommendations(users.get(0), 1)));
+
+        storage.saveLike(films.get(2), users.get(0));
+        assertEquals(List.of(films.get(3)), ids(storage.getRecommendations(users.get(0), 10)));
+
+        storage.deleteLike(films.get(0), users.get(2));
+        assertTrue(storage.getRecommendations(users.get(0), 10).isEmpty());
+    }
+
+    @Test
+    void saveAndDeleteLike() {
+        film = storage.create(film);
+        int userId = userStorage.create(User.builder()
+                                                .login("user_login")
+                                                .name("User Name")
+                                                .email("user@mail.ru")
+                                                .birthday(LocalDate.of(1980, 12, 1))
+                                                .build()).getId();
+
+        LikeChange change = storage.saveLike(film.getId(), userId);
+        assertTrue(change.isChanged());
+        assertEquals(1, change.getLikesCount());
+        assertNotNull(change.getLikedAt());
+        //повторный лайк ничего не меняет
+        change = storage.saveLike(film.getId(), userId);
+        assertFalse(change.isChanged());
+        assertEquals(1, change.getLikesCount());
+        assertEquals(1, storage.getById(film.getId()).orElseThrow().getLikesCount());
+
+        assertThrows(UnknownModelObjectException.class, () -> storage.saveLike(film.getId(), -100));
+        assertThrows(UnknownModelObjectException.class, () -> storage.saveLike(-100, userId));
+        assertEquals(1, storage.getById(film.getId()).orElseThrow().getLikesCount());
+
+        change = storage.deleteLike(film.getId(), userId);
+        assertTrue(change.isChanged());
+        assertEquals(0, change.getLikesCount());
+        //удаление несуществующего лайка не уменьшает счетчик
+        change = storage.deleteLike(film.getId(), userId);
+        assertFalse(change.isChanged());
+        assertEquals(0, change.getLikesCount());
+        assertThrows(UnknownModelObjectException.class, () -> storage.deleteLike(-100, userId));
+    }
+
+    @Test
+    void search() {
+        Film comedy = storage.create(Film.builder()
+                                             .name("Иван Васильевич меняет профессию")
+                                             .description("Комедия о машине времени")
+                                             .releaseDate(LocalDate.of(1973, 9, 17))
+                                             .duration(88)
+                                             .mpa(film.getMpa())
+                                             .build());
+        Film fairyTale = storage.create(Film.builder()
+                                                .name("Морозко")
+                                                .description("Сказка, в которой Иван ищет Настеньку в ёлочном лесу")
+                                                .releaseDate(LocalDate.of(1964, 3, 24))
+                                                .duration(84)
+                                                .mpa(film.getMpa())
+                                                .build());
+        Film matrix = storage.create(Film.builder()
+                                             .name("The Matrix")
+                                             .description("Neo and the machine world")
+                                             .releaseDate(LocalDate.of(1999, 3, 31))
+                                             .duration(136)
+                                             .mpa(film.getMpa())
+                                             .build());
+
+        // совпадение в названии важнее совпадения в описании
+        assertEquals(List.of(comedy.getId(), fairyTale.getId()), ids(storage.search("ИВАН", 10)));
+        assertEquals(List.of(fairyTale.getId()), ids(storage.search("елочном", 10)));
+        assertEquals(List.of(matrix.getId()), ids(storage.search("matrix!", 10)));
+        assertTrue(storage.search("терминатор", 10).isEmpty());
+
+        matrix.setName("Матрица");
+        storage.update(matrix);
+        assertTrue(storage.search("matrix", 10).isEmpty());
+        assertEquals(List.of(matrix.getId()), ids(storage.search("матрица", 10)));
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,228 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval-ms=20",
+        "filmorate.likes.write-behind.max-pending-events=50"})
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class LikesCounterBufferTest {
+    private static final int FILMS = 10;
+    private static final int USERS = 40;
+    private static final int THREADS = 8;
+
+    @Autowired
+    private FilmStorage filmStorage;
+    @Autowired
+    private UserStorage userStorage;
+    @Autowired
+    private LikesCounterBuffer buffer;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private FilmService filmService;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void countersAreCorrectAfterConcurrentLoad() throws Exception {
+        assertTrue(buffer.isEnabled());
+        List<Integer> filmIds = new ArrayList<>();
+        for (int i = 0; i < FILMS; i++) {
+            filmIds.add(filmStorage.create(Film.builder()
+                                                   .name("Film Name" + i)
+                                                   .description("Film Description" + i)
+                                                   .releaseDate(LocalDate.of(1980, 12, 1))
+                                                   .duration(180)
+                                                   .mpa(MpaRating.builder().id(1).build())
+                                                   .build()).getId());
+        }
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(userStorage.create(User.builder()
+                                                   .login("user_login" + i)
+                                                   .email("user" + i + "@mail.ru")
+                                                   .birthday(LocalDate.of(1980, 12, 1))
+                                                   .build()).getId());
+        }
+
+        // каждый пользователь лайкает все фильмы, каждый третий затем снимает лайк с четных фильмов
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int userIndex = 0; userIndex < USERS; userIndex++) {
+            int userId = userIds.get(userIndex);
+            boolean unlikes = userIndex % 3 == 0;
+            futures.add(executor.submit(() -> {
+                for (int filmId : filmIds) {
+                    filmStorage.saveLike(filmId, userId);
+                }
+                if (unlikes) {
+                    for (int i = 0; i < filmIds.size(); i += 2) {
+                        filmStorage.deleteLike(filmIds.get(i), userId);
+                    }
+                }
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        executor.shutdown();
+
+        buffer.drain();
+
+        Map<Integer, Integer> expected = new HashMap<>();
+        jdbcTemplate.query("SELECT FILM_ID, COUNT(*) AS CNT FROM LIKES GROUP BY FILM_ID",
+                           rs -> {
+                               expected.put(rs.getInt("FILM_ID"), rs.getInt("CNT"));
+                           });
+        assertEquals(expected, filmStorage.getLikesCounts());
+        int unlikingUsers = (USERS + 2) / 3;
+        assertEquals(USERS - unlikingUsers, filmStorage.getLikesCounts().get(filmIds.get(0)));
+        assertEquals(USERS, filmStorage.getLikesCounts().get(filmIds.get(1)));
+    }
+
+    @Test
+    void flushChangesCollectionVersion() {
+        int filmId = filmService.create(Film.builder()
+                                                .name("Film Name")
+                                                .description("Film Description")
+                                                .releaseDate(LocalDate.of(1980, 12, 1))
+                                                .duration(180)
+                                                .mpa(MpaRating.builder().id(1).build())
+                                                .build()).getId();
+        int userId = userStorage.create(User.builder()
+                                                .login("user_login")
+                                                .email("user@mail.ru")
+                                                .birthday(LocalDate.of(1980, 12, 1))
+                                                .build()).getId();
+
+        String likedVersion = buffer.withoutFlush(() -> {
+            filmService.setLike(filmId, userId);
+            return filmService.getCollectionVersion();
+        });
+        buffer.flush();
+        assertNotEquals(likedVersion, filmService.getCollectionVersion());
+    }
+
+    @Test
+    void likeReturnsCountWithPendingChanges() {
+        int filmId = filmStorage.create(Film.builder()
+                                                .name("Film Name")
+                                                .description("Film Description")
+                                                .releaseDate(LocalDate.of(1980, 12, 1))
+                                                .duration(180)
+                                                .mpa(MpaRating.builder().id(1).build())
+                                                .build()).getId();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            userIds.add(userStorage.create(User.builder()
+                                                   .login("user_login" + i)
+                                                   .email("user" + i + "@mail.ru")
+                                                   .birthday(LocalDate.of(1980, 12, 1))
+                                                   .build()).getId());
+        }
+
+        assertEquals(1, filmStorage.saveLike(filmId, userIds.get(0)).getLikesCount());
+        buffer.flush();
+        assertEquals(2, filmStorage.saveLike(filmId, userIds.get(1)).getLikesCount());
+        assertEquals(2, filmStorage.saveLike(filmId, userIds.get(1)).getLikesCount());
+        assertEquals(1, filmStorage.deleteLike(filmId, userIds.get(0)).getLikesCount());
+        buffer.flush();
+        assertEquals(1, filmStorage.deleteLike(filmId, userIds.get(0)).getLikesCount());
+    }
+
+    @Test
+    void rolledBackLikeIsNotBuffered() {
+        int filmId = filmStorage.create(Film.builder()
+                                                .name("Film Name")
+                                                .description("Film Description")
+                                                .releaseDate(LocalDate.of(1980, 12, 1))
+                                                .duration(180)
+                                                .mpa(MpaRating.builder().id(1).build())
+                                                .build()).getId();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            userIds.add(userStorage.create(User.builder()
+                                                   .login("user_login" + i)
+                                                   .email("user" + i + "@mail.ru")
+                                                   .birthday(LocalDate.of(1980, 12, 1))
+                                                   .build()).getId());
+        }
+        filmStorage.saveLike(filmId, userIds.get(0));
+        buffer.flush();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(2, filmStorage.saveLike(filmId, userIds.get(1)).getLikesCount());
+            assertEquals(0, buffer.getPending(filmId));
+            status.setRollbackOnly();
+        });
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            assertEquals(0, filmStorage.deleteLike(filmId, userIds.get(0)).getLikesCount());
+            status.setRollbackOnly();
+        });
+        assertEquals(0, buffer.getPending(filmId));
+        buffer.flush();
+        assertEquals(1, filmStorage.getLikesCounts().get(filmId));
+        assertEquals(new LikesCountScan(1, List.of()), filmStorage.findLikesCountDrift(filmId, filmId));
+    }
+
+    @Test
+    void fixDoesNotDoubleCountPendingLike() {
+        int filmId = filmStorage.create(Film.builder()
+                                                .name("Film Name")
+                                                .description("Film Description")
+                                                .releaseDate(LocalDate.of(1980, 12, 1))
+                                                .duration(180)
+                                                .mpa(MpaRating.builder().id(1).build())
+                                                .build()).getId();
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            userIds.add(userStorage.create(User.builder()
+                                                   .login("user_login" + i)
+                                                   .email("user" + i + "@mail.ru")
+                                                   .birthday(LocalDate.of(1980, 12, 1))
+                                                   .build()).getId());
+        }
+        filmStorage.saveLike(filmId, userIds.get(0));
+        buffer.flush();
+        jdbcTemplate.update("UPDATE FILMS SET LIKES_COUNT = 5 WHERE ID = ?", filmId);
+        List<LikesCountDrift> drifts = filmStorage.findLikesCountDrift(filmId, filmId).getDrifts();
+        assertEquals(List.of(new LikesCountDrift(filmId, 5, 1)), drifts);
+
+        // лайк между сверкой и исправлением: строка LIKES уже есть, а +1 еще в буфере
+        List<LikesCountDrift> fixed = buffer.withoutFlush(() -> {
+            filmStorage.saveLike(filmId, userIds.get(1));
+            return filmStorage.fixLikesCounts(drifts);
+        });
+        buffer.flush();
+
+        assertEquals(drifts, fixed);
+        assertEquals(2, filmStorage.getLikesCounts().get(filmId));
+    }
+}
@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.jdbc.Sql;
+import ru.yandex.practicum.filmorate.controller.EventController;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.MpaRating;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.DictionaryDbStorage;
+import ru.yandex.practicum.filmorate.storage.Shards;
+import ru.yandex.practicum.filmorate.storage.user.ShardedUserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
+
+@SpringBootTest(properties = {
+        "filmorate.sharding.enabled=true",
+        "filmorate.sharding.urls=jdbc:h2:file:./target/shards/shard-0;NON_KEYWORDS=user," +
+                "jdbc:h2:file:./target/shards/shard-1;NON_KEYWORDS=user"
+})
+@Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
+class ShardedFilmStorageTest extends FilmStorageTest<ShardedFilmStorage> {
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private Shards shards;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private ShardedFilmStorage shardedFilmStorage;
+    @Autowired
+    private ShardedUserStorage shardedUserStorage;
+
+    @BeforeEach
+    void setUp() {
+        shards.initSchema();
+        shardedFilmStorage.reload();
+        shardedUserStorage.reload();
+        dictionaryStorage = new DictionaryDbStorage(jdbcTemplate);
+        storage = shardedFilmStorage;
+        userStorage = shardedUserStorage;
+        super.setUp();
+    }
+
+    @Test
+    void spreadsFilmsAcrossShardsAndMergesResults() {
+        List<Integer> films = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            films.add(storage.create(Film.builder()
+                                             .name("Film " + i)
+                                             .description("Film Description")
+                                             .releaseDate(LocalDate.of(1980, 12, 1))
+                                             .duration(180)
+                                             .mpa(MpaRating.builder().id(1).build())
+                                             .build()).getId());
+        }
+        List<Integer> users = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            users.add(userStorage.create(User.builder()
+                                                 .login("user" + i)
+                                                 .email("user" + i + "@mail.ru")
+                                                 .birthday(LocalDate.of(1980, 12, 1))
+                                                 .build()).getId());
+        }
+        for (int i = 0; i < users.size(); i++) {
+            for (int j = 0; j <= i; j++) {
+                storage.saveLike(films.get(films.size() - 1 - j), users.get(i));
+            }
+        }
+
+        assertEquals(List.of(1, 2, 3, 4, 5), films);
+        assertEquals(List.of(3, 2), shards.getTemplates().stream()
+                .map(template -> template.queryForObject("SELECT COUNT(*) FROM FILMS", Integer.class))
+                .collect(Collectors.toList()));
+        assertEquals(List.of(5, 4, 3, 1), ids(storage.getTopPopular(4)));
+        assertEquals(List.of(3, 4, 5), ids(storage.getPage(2, 10)));
+        assertEquals(films, ids(storage.getAll()));
+        assertEquals(5, storage.getMaxId());
+    }
+
+    @Test
+    void updateInShardIsAtomic() {
+        Film film = storage.create(Film.builder()
+                                           .name("Film Name")
+                                           .description("Film Description")
+                                           .releaseDate(LocalDate.of(1980, 12, 1))
+                                           .duration(180)
+                                           .mpa(MpaRating.builder().id(1).build())
+                                           .build());
+        film.addGenre(dictionaryStorage.getGenreById(1).orElseThrow());
+        storage.update(film);
+
+        film.setName("New Name");
+        film.addGenre(Genre.builder().id(999).name("Нет в справочнике").build());
+        assertThrows(DataIntegrityViolationException.class, () -> storage.update(film));
+
+        // изменение фильма откатывается вместе с жанрами
+        Film actual = storage.getById(film.getId()).orElseThrow();
+        assertEquals("Film Name", actual.getName());
+        assertEquals(1, actual.getGenres().size());
+    }
+
+    @Test
+    void eventStreamIsDisabled() {
+        assertTrue(applicationContext.getBeansOfType(EventController.class).isEmpty());
+        storage.create(Film.builder()
+                               .name("Film Name")
+                               .description("Film Description")
+                               .releaseDate(LocalDate.of(1980, 12, 1))
+                               .duration(180)
+                               .mpa(MpaRating.builder().id(1).build())
+                               .build());
+        assertEquals(0, jdbcTemplate.queryForObject("SELECT COUNT(*) FROM OUTBOX", Integer.class));
+    }
+
+    private static List<Integer> ids(List<Film> films) {
+        return films.stream().map(Film::getId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,32 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+class FriendGraphTest {
+    private static final int CANDIDATES = 100;
+
+    @Test
+    void suggestCountsMutualFriends() {
+        FriendGraph graph = new FriendGraph();
+        graph.replace(Map.of(1, new int[]{2, 3, 4}));
+        // у друзей 2, 3 и 4 по CANDIDATES общих кандидатов, у кандидата k общих друзей - k % 3 + 1
+        for (int friendId = 2; friendId <= 4; friendId++) {
+            graph.add(friendId, 1);
+            graph.add(friendId, 2);
+            for (int candidate = 10; candidate < 10 + CANDIDATES; candidate++) {
+                if (candidate % 3 + 1 >= friendId - 1) {
+                    graph.add(friendId, candidate);
+                }
+            }
+        }
+
+        // пользователь и его друзья не предлагаются, при равенстве выше меньший идентификатор
+        assertArrayEquals(new int[]{11, 14, 17}, graph.suggest(1, 3));
+        assertArrayEquals(new int[0], graph.suggest(1, 0));
+        assertArrayEquals(new int[0], graph.suggest(5, 10));
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.yandex.practicum.filmorate.storage.Shards;
+
+@SpringBootTest(properties = {
+        "filmorate.sharding.enabled=true",
+        "filmorate.sharding.urls=jdbc:h2:file:./target/shards/shard-0;NON_KEYWORDS=user," +
+                "jdbc:h2:file:./target/shards/shard-1;NON_KEYWORDS=user"
+})
+class ShardedUserStorageTest extends UserStorageTest<ShardedUserStorage> {
+    @Autowired
+    private Shards shards;
+    @Autowired
+    private ShardedUserStorage shardedUserStorage;
+
+    @BeforeEach
+    void setUp() {
+        super.setUp();
+        shards.initSchema();
+        storage = shardedUserStorage;
+        storage.reload();
+    }
+}
@@ -1,22 +1,82 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.jdbc.Sql;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.DomainEvent;
+import ru.yandex.practicum.filmorate.model.EventType;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.EventDbStorage;
 
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.springframework.test.context.jdbc.Sql.ExecutionPhase.BEFORE_TEST_METHOD;
 
 @SpringBootTest
 @Sql(scripts = {"classpath:del_tables.sql", "classpath:schema.sql", "classpath:data.sql"}, executionPhase = BEFORE_TEST_METHOD)
 public class UserDbStorageTest extends UserStorageTest<UserDbStorage> {
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private UserDbStorage userDbStorage;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private EventDbStorage eventStorage;
 
     @BeforeEach
     void setUp() {
         super.setUp();
-        storage = new UserDbStorage(jdbcTemplate);
+        storage = userDbStorage;
+        storage.reload();
+    }
+
+    @Test
+    void rolledBackFriendshipIsNotInGraph() {
+        int userId = createUser("first").getId();
+        int friendId = createUser("second").getId();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            storage.saveFriendship(userId, friendId);
+            status.setRollbackOnly();
+        });
+        assertTrue(storage.getUserFriends(userId).isEmpty());
+
+        storage.saveFriendship(userId, friendId);
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            storage.deleteFriendship(userId, friendId);
+            status.setRollbackOnly();
+        });
+        assertEquals(1, storage.getUserFriends(userId).size());
+    }
+
+    @Test
+    void repeatedFriendshipIsOneEvent() {
+        int userId = createUser("first").getId();
+        int friendId = createUser("second").getId();
+
+        storage.saveFriendship(userId, friendId);
+        storage.saveFriendship(userId, friendId);
+        storage.deleteFriendship(userId, friendId);
+        storage.deleteFriendship(userId, friendId);
+        assertEquals(List.of(EventType.FRIEND_ADDED, EventType.FRIEND_REMOVED),
+                     eventStorage.getAfter(0, 100).stream()
+                             .map(DomainEvent::getType)
+                             .filter(type -> type != EventType.USER_CREATED)
+                             .collect(Collectors.toList()));
+    }
+
+    private User createUser(String login) {
+        return storage.create(User.builder()
+                                      .login(login)
+                                      .email(login + "@mail.ru")
+                                      .birthday(LocalDate.of(1980, 12, 1))
+                                      .build());
     }
 }
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Test;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -98,6 +99,18 @@ public abstract class UserStorageTest<T extends UserStorage> {
         assertEquals(2, storage.getAll().size());
     }
 
+    @Test
+    void testGetPage() {
+        storage.create(user);
+        storage.create(friend);
+
+        List<User> page = storage.getPage(0, 1);
+        assertEquals(List.of(user), page);
+        page = storage.getPage(user.getId(), 10);
+        assertEquals(List.of(friend), page);
+        assertTrue(storage.getPage(friend.getId(), 10).isEmpty());
+    }
+
     @Test
     void testGetById() {
         storage.create(user);
@@ -106,6 +119,71 @@ public abstract class UserStorageTest<T extends UserStorage> {
         assertEquals(user, optUser.orElse(null));
     }
 
+    @Test
+    void testGetByIds() {
+        storage.create(user);
+        storage.create(friend);
+
+        assertEquals(List.of(friend, user), storage.getByIds(new int[]{friend.getId(), -100, user.getId()}));
+        assertTrue(storage.getByIds(new int[0]).isEmpty());
+    }
+
+    @Test
+    void testGetCommonFriends() {
+        user = storage.create(user);
+        friend = storage.create(friend);
+        User common = storage.create(
+                User.builder()
+                        .login("common_login")
+                        .name("Common Name")
+                        .email("common@mail.ru")
+                        .birthday(LocalDate.of(1980, 12, 1))
+                        .build());
+        storage.saveFriendship(user.getId(), friend.getId());
+        storage.saveFriendship(user.getId(), common.getId());
+        storage.saveFriendship(friend.getId(), common.getId());
+        storage.saveFriendship(friend.getId(), user.getId());
+
+        assertEquals(List.of(common), storage.getCommonFriends(user.getId(), friend.getId()));
+
+        storage.deleteFriendship(friend.getId(), common.getId());
+        assertTrue(storage.getCommonFriends(user.getId(), friend.getId()).isEmpty());
+    }
+
+    @Test
+    void testGetFriendSuggestions() {
+        user = storage.create(user);
+        friend = storage.create(friend);
+        User other = storage.create(newUser("other"));
+        User popular = storage.create(newUser("popular"));
+        User rare = storage.create(newUser("rare"));
+        storage.saveFriendship(user.getId(), friend.getId());
+        storage.saveFriendship(user.getId(), other.getId());
+        storage.saveFriendship(friend.getId(), rare.getId());
+        storage.saveFriendship(friend.getId(), popular.getId());
+        storage.saveFriendship(friend.getId(), other.getId());
+        storage.saveFriendship(friend.getId(), user.getId());
+        storage.saveFriendship(other.getId(), popular.getId());
+
+        // уже добавленные друзья и сам пользователь в рекомендации не попадают
+        assertEquals(List.of(popular, rare), storage.getFriendSuggestions(user.getId(), 10));
+        assertEquals(List.of(popular), storage.getFriendSuggestions(user.getId(), 1));
+
+        storage.deleteFriendship(other.getId(), popular.getId());
+        assertEquals(List.of(popular, rare), storage.getFriendSuggestions(user.getId(), 10));
+        storage.saveFriendship(other.getId(), rare.getId());
+        assertEquals(List.of(rare, popular), storage.getFriendSuggestions(user.getId(), 10));
+    }
+
+    private static User newUser(String login) {
+        return User.builder()
+                .login(login + "_login")
+                .name(login)
+                .email(login + "@mail.ru")
+                .birthday(LocalDate.of(1980, 12, 1))
+                .build();
+    }
+
     @Test
     void testSaveFriendship() {
         User user2 = storage.create(